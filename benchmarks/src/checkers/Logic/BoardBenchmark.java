@@ -0,0 +1,61 @@
+package checkers.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Copying boards and making and unmaking moves on them
+ *
+ * @author Justin Gaudet
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class BoardBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+
+	private Board board;
+	private long[] moves;
+	private int count;
+
+	@Setup
+	public void setup() {
+		board=Positions.board(position);
+		moves=new long[MoveGenerator.MAX_MOVES];
+		count=MoveGenerator.generate(board, 'R', moves);
+	}
+
+	@Benchmark
+	public Board copy() {
+		return new Board(board);
+	}
+
+	/**
+	 * Makes and unmakes every legal move
+	 */
+	@Benchmark
+	public void makeUnmake(Blackhole bh) {
+		for(int i=0; i<count; i++) {
+			int kingsBefore=board.make(moves[i]);
+			bh.consume(board.getHash());
+			board.unmake(moves[i], kingsBefore);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package checkers.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generating moves, and asking whether the player has one, from the standard positions
+ *
+ * @author Justin Gaudet
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+	@Param({"opening", "early", "middlegame", "multihop", "endgame"})
+	public String position;
+
+	private Board board;
+	private char color;
+	private long[] moves;
+	private CheckersLogic game;
+
+	@Setup
+	public void setup() {
+		board=Positions.board(position);
+		color=Positions.color(position);
+		moves=new long[MoveGenerator.MAX_MOVES];
+		game=new CheckersLogic((byte)1);
+		game.setPosition(Positions.board(position), color);
+	}
+
+	@Benchmark
+	public int generate() {
+		return MoveGenerator.generate(board, color, moves);
+	}
+
+	@Benchmark
+	public int generateCaptures() {
+		return MoveGenerator.generateCaptures(board, color, moves);
+	}
+
+	@Benchmark
+	public boolean userHasMove() {
+		return game.userHasMove();
+	}
+}
@@ -0,0 +1,47 @@
+package checkers.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Perft from the standard positions on one thread, under the game's rules, as milliseconds per count
+ *
+ * @author Justin Gaudet
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class PerftBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+
+	@Param({"6"})
+	public int depth;
+
+	private Perft perft;
+
+	@Setup
+	public void setup() {
+		perft=new Perft(Positions.board(position), Positions.color(position), false);
+	}
+
+	@Benchmark
+	public long count() throws Exception {
+		return perft.count(depth, 1);
+	}
+}
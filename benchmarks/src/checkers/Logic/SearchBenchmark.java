@@ -0,0 +1,87 @@
+package checkers.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The search behind CheckersLogic.computerMove, to a fixed depth with an empty transposition table and a new Search,
+ * so no history or killer moves carry over and each operation is one computer move from scratch. The time per operation is the time per move; the nodes counter is reported as
+ * nodes per second.
+ *
+ * @author Justin Gaudet
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3, time=2)
+@Measurement(iterations=5, time=2)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String position;
+
+	@Param({"6", "8", "10"})
+	public int depth;
+
+	private Board board;
+	private char color;
+	private byte red;
+	private byte black;
+	private TranspositionTable table;
+	private Search search;
+
+	/**
+	 * Nodes visited, which JMH divides by the measured time
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public long nodes;
+	}
+
+	@Setup
+	public void setup() {
+		board=Positions.board(position);
+		color=Positions.color(position);
+		red=(byte)Integer.bitCount(board.getRedMask());
+		black=(byte)Integer.bitCount(board.getBlackMask());
+		table=new TranspositionTable(CheckersLogic.DEFAULT_TABLE_MB, TranspositionTable.Replacement.DEPTH_PREFERRED);
+	}
+
+	@Setup(Level.Invocation)
+	public void freshSearch() {
+		table.clear();
+		search=new Search(table);
+	}
+
+	@Benchmark
+	public long search(Counters counters) {
+		long move=search.search(board, color, red, black, depth);
+		counters.nodes+=search.getNodes();
+		return move;
+	}
+
+	/**
+	 * The same search reported as milliseconds per move
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public long searchTime() {
+		return search.search(board, color, red, black, depth);
+	}
+}
@@ -0,0 +1,99 @@
+package checkers.Logic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validating the player's moves, given as row/column paths the way the CLI reads them: by checking the path on the
+ * board, and by looking it up in the position's LegalMoves, which CheckersLogic works out once per position
+ *
+ * @author Justin Gaudet
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=3, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class ValidateMoveBenchmark {
+	/** step: a one square move, hop: a single jump, multihop: the longest jump, invalid: a man stepping backwards */
+	@Param({"step", "hop", "multihop", "invalid"})
+	public String kind;
+
+	private Board board;
+	private byte[] path;
+	private LegalMoves legalMoves;
+
+	@Setup
+	public void setup() {
+		board=Positions.board("multihop");
+		long[] moves=new long[MoveGenerator.MAX_MOVES];
+		int count=MoveGenerator.generate(board, 'R', moves);
+		long chosen=Move.NONE;
+		for(int i=0; i<count; i++) {
+			int captured=Integer.bitCount(Move.captured(moves[i]));
+			if(kind.equals("step") && captured==0
+					|| kind.equals("hop") && captured==1
+					|| kind.equals("multihop") && captured>Integer.bitCount(Move.captured(chosen))) {
+				chosen=moves[i];
+				if(!kind.equals("multihop")) {
+					break;
+				}
+			}
+		}
+		path = kind.equals("invalid") ? backwardStep() : Move.toPath(chosen, board.getRedMask()|board.getBlackMask());
+		legalMoves=new LegalMoves(board, 'R');
+	}
+
+	/**
+	 * Finds a red man with an empty square behind it, and steps it there
+	 */
+	private byte[] backwardStep() {
+		int occupied=board.getRedMask()|board.getBlackMask();
+		int men=board.getRedMask()&~board.getKingMask();
+		for(int sq=0; sq<32; sq++) {
+			//red moves up the board, so behind is the next row down
+			int row=Board.row(sq)+1;
+			if((men>>>sq&1)==0 || row>7) {
+				continue;
+			}
+			for(int col=Board.col(sq)-1; col<=Board.col(sq)+1; col+=2) {
+				if(col>=0 && col<=7 && (occupied>>>Board.square(row, col)&1)==0) {
+					return new byte[] {(byte)Board.row(sq), (byte)Board.col(sq), (byte)row, (byte)col};
+				}
+			}
+		}
+		throw new IllegalStateException("no red man can step backwards");
+	}
+
+	@Benchmark
+	public boolean validateMove() throws Exception {
+		return board.validateMove('R', path);
+	}
+
+	@Benchmark
+	public boolean legalMoves() {
+		return legalMoves.contains(path);
+	}
+
+	/**
+	 * Working out the position's moves, which is paid once per position rather than once per move checked
+	 */
+	@Benchmark
+	public LegalMoves generateLegalMoves() {
+		legalMoves.generate(board, 'R');
+		return legalMoves;
+	}
+}
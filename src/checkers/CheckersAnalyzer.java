@@ -0,0 +1,304 @@
+package checkers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import checkers.Logic.Board;
+import checkers.Logic.Evaluation;
+import checkers.Logic.Move;
+import checkers.Logic.ParallelSearch;
+import checkers.Logic.Tablebase;
+import checkers.Logic.TranspositionTable;
+import checkers.Record.GameRecord;
+import checkers.Record.GameSource;
+import checkers.Record.PdnReader;
+import checkers.Record.PdnWriter;
+import checkers.Record.RecordReader;
+
+/**
+ * Analyzes many positions to a fixed depth or time on a pool of worker threads, each with its own search and
+ * transposition table. Positions are read one at a time from a game record file, a PDN file (every position a move
+ * was played in) or a text file with a position in checkers FEN on each line, which may follow a name as in the
+ * files Positions reads. Results are written in the order the positions were read, one line each:
+ * <pre>
+ * game ply fen bestmove m score s depth d nodes n time ms
+ * </pre>
+ * with the move in PDN numbers and the score from the side to move's point of view, as the engine protocol gives it.
+ * Only a window of positions, a few per worker, is read ahead of the results written, so memory stays bounded and a
+ * slow output holds back reading.
+ * <p>
+ * Usage: CheckersAnalyzer file [-depth n | -movetime ms] [-workers n] [-hash mb] [-window n] [-output file]
+ * [-tablebase file] [-evaluation file]
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class CheckersAnalyzer {
+	public static final int DEFAULT_DEPTH=10;
+	public static final int DEFAULT_HASH_MB=16;
+	/** Positions read ahead for each worker */
+	public static final int DEFAULT_WINDOW_PER_WORKER=4;
+
+	private final ExecutorService workers;
+	private final ThreadLocal<ParallelSearch> searchers;
+	private final int depth;
+	private final long moveTime;
+	private final int window;
+	private long positions;
+	private long nodes;
+
+	/**
+	 * @param workerThreads The number of threads positions are analyzed on
+	 * @param hash Each worker's transposition table size in megabytes
+	 * @param depthIn The depth to search each position to
+	 * @param moveTimeIn The longest to search each position in milliseconds, or 0 for no limit
+	 * @param windowIn The most positions read ahead of the results written
+	 * @param tablebase A tablebase for every search to use, or null
+	 * @param evaluation The weights every search judges positions by, or null for the defaults
+	 */
+	public CheckersAnalyzer(int workerThreads, int hash, int depthIn, long moveTimeIn, int windowIn, Tablebase tablebase,
+			Evaluation evaluation) {
+		workers=Executors.newFixedThreadPool(workerThreads, r -> {
+			Thread t=new Thread(r, "checkers-analyzer");
+			t.setDaemon(true);
+			return t;
+		});
+		searchers=ThreadLocal.withInitial(() -> {
+			TranspositionTable table=new TranspositionTable(hash, TranspositionTable.Replacement.DEPTH_PREFERRED);
+			ParallelSearch search=new ParallelSearch(table, 1);
+			search.setOwner(table.newOwner());
+			search.setTablebase(tablebase);
+			if(evaluation!=null) {
+				search.setEvaluation(evaluation);
+			}
+			return search;
+		});
+		depth=depthIn;
+		moveTime=moveTimeIn;
+		window=Math.max(1, windowIn);
+	}
+
+	public static void main(String[] args) {
+		if(args.length<1) {
+			System.out.println("Usage: CheckersAnalyzer file [-depth n | -movetime ms] [-workers n] [-hash mb] [-window n] [-output file] [-tablebase file] [-evaluation file]");
+			System.out.println("\tAnalyzes every position in a game record file, a PDN file, or a file of checkers FEN positions, one a line.");
+			System.out.println("\t-depth searches each position to depth n ("+DEFAULT_DEPTH+" unless -movetime is given).");
+			System.out.println("\t-movetime stops each search after ms milliseconds.");
+			System.out.println("\t-workers analyzes on n threads (one per core by default), each with a -hash mb table.");
+			System.out.println("\t-window reads at most n positions ahead of the results written.");
+			System.out.println("\t-output writes the results to a file instead of the console.");
+			return;
+		}
+		try {
+			Path in=Paths.get(args[0]);
+			int workerThreads=Runtime.getRuntime().availableProcessors();
+			int hash=DEFAULT_HASH_MB;
+			int depth=0;
+			long moveTime=0;
+			int window=0;
+			Path output=null;
+			Tablebase tablebase=null;
+			Evaluation evaluation=null;
+			for(int i=1; i<args.length; i++) {
+				switch(args[i]) {
+				case "-depth":
+					depth=Integer.parseInt(args[++i]);
+					break;
+				case "-movetime":
+					moveTime=Long.parseLong(args[++i]);
+					break;
+				case "-workers":
+					workerThreads=Integer.parseInt(args[++i]);
+					break;
+				case "-hash":
+					hash=Integer.parseInt(args[++i]);
+					break;
+				case "-window":
+					window=Integer.parseInt(args[++i]);
+					break;
+				case "-output":
+					output=Paths.get(args[++i]);
+					break;
+				case "-tablebase":
+					tablebase=Tablebase.open(Paths.get(args[++i]));
+					break;
+				case "-evaluation":
+					evaluation=Evaluation.load(Paths.get(args[++i]));
+					break;
+				default:
+					throw new IllegalArgumentException("unknown option "+args[i]);
+				}
+			}
+			if(depth==0) {
+				depth = moveTime==0 ? DEFAULT_DEPTH : ParallelSearch.MAX_DEPTH;
+			}
+			depth=Math.max(1, Math.min(ParallelSearch.MAX_DEPTH, depth));
+			if(window==0) {
+				window=DEFAULT_WINDOW_PER_WORKER*workerThreads;
+			}
+			CheckersAnalyzer analyzer=new CheckersAnalyzer(workerThreads, hash, depth, moveTime, window, tablebase, evaluation);
+			long start=System.nanoTime();
+			try(Writer out = output==null ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+					: Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+				analyzer.analyze(in, out);
+			}finally {
+				analyzer.shutdown();
+			}
+			if(output!=null) {
+				long nanos=Math.max(1, System.nanoTime()-start);
+				System.out.println("Positions: "+analyzer.getPositions());
+				System.out.println("Nodes: "+analyzer.getNodes());
+				System.out.println("Time: "+nanos/1000000+" ms");
+				System.out.println("Positions/sec: "+(long)(analyzer.getPositions()/(nanos/1e9)));
+			}
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Analyzes the positions in a file, working out from its start whether it is a game record file, PDN, or FEN
+	 * strings
+	 * @param in
+	 * @param out Where the results are written
+	 * @throws IOException if the file cannot be read, or the results written
+	 * @throws InterruptedException if interrupted while waiting for a result
+	 */
+	public void analyze(Path in, Writer out) throws IOException, InterruptedException {
+		int first;
+		try(InputStream stream=Files.newInputStream(in)) {
+			byte[] magic=new byte[4];
+			int read=stream.readNBytes(magic, 0, 4);
+			if(read==4 && new String(magic, StandardCharsets.US_ASCII).equals("CKR1")) {
+				try(RecordReader reader=RecordReader.open(in)) {
+					analyze(reader, out);
+				}
+				return;
+			}
+			first = read>0 ? magic[0] : -1;
+		}
+		try(BufferedReader reader=Files.newBufferedReader(in, StandardCharsets.UTF_8)) {
+			if(first=='[' || first=='{') {
+				analyze(new PdnReader(reader), out);
+			}else {
+				analyze(() -> {
+					String line=reader.readLine();
+					while(line!=null && (line.trim().isEmpty() || line.startsWith("#"))) {
+						line=reader.readLine();
+					}
+					if(line==null) {
+						return null;
+					}
+					//the position may follow a name, as in a Positions file
+					String[] words=line.trim().split("\\s+");
+					return GameRecord.fromFen(words[words.length-1]);
+				}, out);
+			}
+		}
+	}
+
+	/**
+	 * Analyzes every position a move was played in, or the start position of a game with no moves
+	 * @param games
+	 * @param out Where the results are written, in the order the games give the positions
+	 * @throws IOException if the games cannot be read, or the results written
+	 * @throws InterruptedException if interrupted while waiting for a result
+	 */
+	public void analyze(GameSource games, Writer out) throws IOException, InterruptedException {
+		ArrayDeque<Future<String>> pending=new ArrayDeque<Future<String>>();
+		long gameNumber=0;
+		try {
+			for(GameRecord game=games.next(); game!=null; game=games.next()) {
+				gameNumber++;
+				Board board=game.getStartBoard();
+				int plies=Math.max(1, game.getMoveCount());
+				for(int ply=0; ply<plies; ply++) {
+					//waits for the oldest result before reading further ahead
+					if(pending.size()>=window) {
+						write(pending.poll(), out);
+					}
+					Board position=new Board(board);
+					char color=game.getColorAfter(ply);
+					String label=gameNumber+" "+ply;
+					pending.add(workers.submit(() -> analyze(label, position, color)));
+					if(ply<game.getMoveCount() && game.getMove(ply)!=Move.NONE) {
+						board.make(game.getMove(ply));
+					}
+				}
+			}
+			while(!pending.isEmpty()) {
+				write(pending.poll(), out);
+			}
+		}finally {
+			for(Future<String> result : pending) {
+				result.cancel(true);
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Stops the worker threads
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Gets the number of positions analyzed
+	 */
+	public synchronized long getPositions() {
+		return positions;
+	}
+
+	/**
+	 * Gets the number of nodes searched for every position analyzed
+	 */
+	public synchronized long getNodes() {
+		return nodes;
+	}
+
+	private void write(Future<String> result, Writer out) throws IOException, InterruptedException {
+		String line;
+		try {
+			line=result.get();
+		}catch(ExecutionException e) {
+			line="error "+e.getCause().getMessage();
+		}
+		out.write(line);
+		out.write('\n');
+	}
+
+	/**
+	 * Searches one position on the calling worker's search
+	 */
+	private String analyze(String label, Board position, char color) throws Exception {
+		long start=System.nanoTime();
+		ParallelSearch search=searchers.get();
+		long deadline = moveTime==0 ? Long.MAX_VALUE : start+moveTime*1000000L;
+		byte red=(byte)Integer.bitCount(position.getRedMask());
+		byte black=(byte)Integer.bitCount(position.getBlackMask());
+		String fen=position.toFen(color);
+		long move=search.search(new Board(position), color, red, black, depth, deadline);
+		int score = color=='B' ? search.getBestValue() : -search.getBestValue();
+		synchronized(this) {
+			positions++;
+			nodes+=search.getNodes();
+		}
+		return label+" "+fen+" bestmove "+PdnWriter.move(move, position.getRedMask()|position.getBlackMask())+" score "+score
+				+" depth "+search.getCompletedDepth()+" nodes "+search.getNodes()+" time "+(System.nanoTime()-start)/1000000;
+	}
+}
@@ -1,13 +1,35 @@
 package checkers;
 
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import checkers.Logic.Board;
 import checkers.Logic.CheckersLogic;
+import checkers.Logic.Positions;
+import checkers.Record.GameRecord;
+import checkers.Record.RecordWriter;
 
+/**
+ * Plays a game against the computer on the console.
+ * Usage: CheckersCLI [-position name|fen] [-record file] [-ponder], where -position starts from a position in checkers
+ * FEN or one named in Positions (such as kingred or doublehopblack), -record adds the game to a game record file (see
+ * RecordWriter) when it ends, and -ponder has the computer think while the user does, using a core the whole game.
+ */
 public class CheckersCLI{
 	
 	public static void main(String[] args){
+		String position=null;
+		String recordFile=null;
+		boolean ponder=false;
+		for(int i=0; i<args.length; i++) {
+			if(args[i].equals("-position") && i+1<args.length) {
+				position=args[++i];
+			}else if(args[i].equals("-record") && i+1<args.length) {
+				recordFile=args[++i];
+			}else if(args[i].equals("-ponder")) {
+				ponder=true;
+			}
+		}
 		Scanner sc=new Scanner(System.in);
 
 		boolean validLevel=false;
@@ -21,20 +43,28 @@ public class CheckersCLI{
 			}
 		}
 		
-		CheckersLogic game = new CheckersLogic(gameLevel);
-		//Test setup methods
-		//game.debugSimpleOptTest();
-		//game.debugTestKingBlack();
-		//game.debugTestKingRed();
-		//game.debugTestDoubleHopRed();
-		//game.debugTestDoubleHopBlack();
-		//game.debugRandomLastMove();
+		CheckersLogic game;
+		try {
+			game = position==null ? new CheckersLogic(gameLevel)
+					: new CheckersLogic(gameLevel, position.indexOf(':')>=0 ? position : Positions.fen(position));
+		}catch(IllegalArgumentException e) {
+			System.out.println("INVALID POSITION: "+e.getMessage());
+			sc.close();
+			return;
+		}
+		//think while the user does
+		game.setPondering(ponder, false);
 		
 		String input="";
 		System.out.println(game.getBoard());
 		System.out.println();
-		System.out.print("You are Red, make the first move: ");
 		try {
+			if(game.getColor()=='B') {
+				game.computerMove();
+				System.out.println("My move: "+moveToString(game.getLastMove()));
+				System.out.println(game.getBoard());
+			}
+			System.out.print("You are Red, make the first move: ");
 			while(!game.gameOver() && !input.equals("0")){
 				boolean hasMove = game.userHasMove();
 				if(hasMove) {
@@ -72,9 +102,29 @@ public class CheckersCLI{
 		}catch(Exception e) {
 			e.printStackTrace();
 		}
+		game.shutdown();
+		if(recordFile!=null) {
+			record(game, gameLevel, recordFile);
+		}
 		sc.close();
 	}
 	
+	/**
+	 * Adds the game played to a game record file
+	 */
+	private static void record(CheckersLogic game, byte gameLevel, String file) {
+		GameRecord.Result result=GameRecord.Result.UNFINISHED;
+		if(game.gameOver()) {
+			result = game.getWinner()=='R' ? GameRecord.Result.RED_WIN : GameRecord.Result.BLACK_WIN;
+		}
+		try(RecordWriter writer=RecordWriter.append(Paths.get(file))) {
+			writer.write(new GameRecord(game.getStartBoard(), game.getStartColor(), game.getMoveHistory(), result,
+					gameLevel&0xFF, 0, null));
+		}catch(Exception e) {
+			System.out.println("The game could not be recorded: "+e.getMessage());
+		}
+	}
+	
 	private static byte setDifficulty(Scanner sc) throws Exception {
 		System.out.println("Please choose a difficulty level. The higher the number, the harder your opponent.");
 		System.out.println("\tNote: Difficulties above 10 may take too long on many machines.");
@@ -0,0 +1,84 @@
+package checkers;
+
+import checkers.Logic.Board;
+import checkers.Logic.Perft;
+import checkers.Logic.Positions;
+import checkers.Record.PdnWriter;
+
+/**
+ * Command line tool that counts the move tree to a fixed depth and reports how fast moves were generated.
+ * Usage: CheckersPerft depth [-threads n] [-divide] [-standard] [-position red black kings side | -fen position]
+ */
+public class CheckersPerft {
+
+	public static void main(String[] args) {
+		if(args.length<1) {
+			System.out.println("Usage: CheckersPerft depth [-threads n] [-divide] [-standard] [-position red black kings side | -fen position]");
+			System.out.println("\tCounts the positions reached after depth moves from the starting position.");
+			System.out.println("\t-threads splits the moves from the position between n threads.");
+			System.out.println("\t-divide prints the count below each move from the position, in PDN square numbers.");
+			System.out.println("\t-standard makes captures forced and multi-hops complete, as in published perft results.");
+			System.out.println("\t-position counts from the given red, black and king masks (in hex) with side (R or B) to move.");
+			System.out.println("\t-fen counts from a position in checkers FEN, or one named in Positions.");
+			return;
+		}
+		try {
+			int depth=Integer.parseInt(args[0]);
+			int threads=1;
+			boolean divide=false;
+			boolean standard=false;
+			int red=new Board().getRedMask();
+			int black=new Board().getBlackMask();
+			int kings=0;
+			char color='R';
+			for(int i=1; i<args.length; i++) {
+				if(args[i].equals("-threads")) {
+					threads=Integer.parseInt(args[++i]);
+				}else if(args[i].equals("-divide")) {
+					divide=true;
+				}else if(args[i].equals("-standard")) {
+					standard=true;
+				}else if(args[i].equals("-position")) {
+					red=Integer.parseUnsignedInt(args[++i], 16);
+					black=Integer.parseUnsignedInt(args[++i], 16);
+					kings=Integer.parseUnsignedInt(args[++i], 16);
+					color=args[++i].toUpperCase().charAt(0);
+				}else if(args[i].equals("-fen")) {
+					String fen=args[++i];
+					if(fen.indexOf(':')<0) {
+						fen=Positions.fen(fen);
+					}
+					Board board=Board.fromFen(fen);
+					red=board.getRedMask();
+					black=board.getBlackMask();
+					kings=board.getKingMask();
+					color=Board.fenColor(fen);
+				}else {
+					throw new IllegalArgumentException("unknown option "+args[i]);
+				}
+			}
+			Perft perft=new Perft(red, black, kings, color, standard);
+			long start=System.nanoTime();
+			long nodes;
+			if(divide && depth>0) {
+				long[] moves=perft.getRootMoves();
+				long[] counts=perft.divide(depth, threads);
+				nodes=0;
+				for(int i=0; i<moves.length; i++) {
+					System.out.println(PdnWriter.move(moves[i], red|black)+": "+counts[i]);
+					nodes+=counts[i];
+				}
+				System.out.println();
+			}else {
+				nodes=perft.count(depth, threads);
+			}
+			long nanos=Math.max(1, System.nanoTime()-start);
+			System.out.println("Nodes: "+nodes);
+			System.out.println("Time: "+nanos/1000000+" ms");
+			System.out.println("Nodes/sec: "+(long)(nodes/(nanos/1e9)));
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,519 @@
+package checkers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import checkers.Logic.Board;
+import checkers.Logic.Move;
+import checkers.Logic.LegalMoves;
+import checkers.Logic.ParallelSearch;
+import checkers.Logic.SearchStats;
+import checkers.Logic.Evaluation;
+import checkers.Logic.Tablebase;
+import checkers.Logic.TranspositionTable;
+import checkers.Record.GameRecord;
+
+/**
+ * Headless engine mode for driving the engine from another process, one command per line on stdin and one reply
+ * per line on stdout. Nothing is rendered, so replies are easy to parse.
+ * <p>
+ * Moves are written as the squares they pass through, with the row letter and column number the CLI uses and no
+ * spaces: F2E3 for a move, F2D4B6 for a double hop, or pass for a side that cannot move.
+ * Scores are from the side to move's point of view, in hundredths of a man (see Evaluation). Once the game is won
+ * they are above 19000, and higher the sooner it is won; lost games are the same below -19000.
+ * <pre>
+ * protocol                          replies id name ... then protocolok
+ * isready                           replies readyok
+ * newgame                           the starting position, with the transposition table cleared
+ * position startpos [moves m1 m2 ...]
+ * position masks red black kings side [moves m1 m2 ...]
+ *                                   red, black and kings are hex square masks (see Board), side is R or B
+ * position fen f [moves m1 m2 ...]  f is a position in checkers FEN, without spaces (see Board.fromFen)
+ * moves                             replies moves m1 m2 ... with every legal move
+ * go depth n | go movetime ms | go infinite
+ *                                   searches in the background, then replies
+ *                                   bestmove m score s depth d nodes n time ms
+ * stop                              ends a search early; it still replies bestmove
+ * setoption name value              hash (megabytes), threads, tablebase (a file path), or evaluation (a weights
+ *                                   file, see Evaluation)
+ * hashstats                         replies hashstats probes p hits h sharedhits s for the transposition table,
+ *                                   where sharedhits counts hits on entries another session stored
+ * stats                             replies stats and the counters of the last search (see SearchStats.toString)
+ * quit
+ * </pre>
+ * Errors reply error and a message. Only isready, stop and quit are accepted while a search is running.
+ * <p>
+ * The same commands are used for each connection to CheckersServer, where searches run on the server's worker
+ * threads and the threads, tablebase and evaluation options are set for the whole server instead, as is hash when the server
+ * shares one transposition table between sessions.
+ * <p>
+ * A session given a recorder (see setRecorder) hands it each game when it is over: on newgame, on quit, or when a
+ * position command does not carry on from the last one, since a client sends the whole game each time.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class CheckersProtocol {
+	/** Size of the transposition table a session starts with */
+	public static final int DEFAULT_HASH_MB=16;
+
+	private final Consumer<String> replies;
+	private final Executor searches;
+	private final Supplier<ParallelSearch> searchers;
+	private final boolean shared;
+	private int maxHash;
+	private int hash;
+	private long maxMoveTime;
+	private ParallelSearch own;
+	private int threads;
+	private Tablebase tablebase;
+	private Evaluation evaluation;
+	private TranspositionTable table;
+	private boolean tableShared;
+	private int owner;
+	private Board board;
+	private char color;
+	//the game the position commands have been playing, for the recorder
+	private Board gameStart;
+	private char gameColor;
+	private long[] gameMoves=new long[0];
+	private int gameDepth;
+	private long gameMoveTime;
+	private Consumer<GameRecord> recorder;
+	//refilled for each position whose moves are checked or listed
+	private final LegalMoves legal=new LegalMoves();
+	private CompletableFuture<Void> searching;
+	private volatile ParallelSearch running;
+	private volatile boolean searchRunning;
+	private volatile SearchStats lastStats;
+	private volatile boolean stopRequested;
+
+	/**
+	 * Constructs a session that searches on a thread of its own
+	 * @param repliesIn Receives each reply line
+	 */
+	public CheckersProtocol(Consumer<String> repliesIn) {
+		replies=repliesIn;
+		searches=task -> new Thread(task, "checkers-protocol-search").start();
+		searchers=() -> own;
+		shared=false;
+		maxHash=Integer.MAX_VALUE;
+		maxMoveTime=Long.MAX_VALUE;
+		threads=1;
+		hash=DEFAULT_HASH_MB;
+		own=new ParallelSearch(null, threads);
+		board=new Board();
+		color='R';
+	}
+
+	/**
+	 * Constructs a session whose searches run on another owner's threads, as CheckersServer does
+	 * @param repliesIn Receives each reply line. It is called from the search threads as well as the caller's.
+	 * @param searchesIn Runs each search
+	 * @param searchersIn Gives the search to use on the thread a search is running on. Its table is switched to
+	 * this session's before each search.
+	 * @param sharedTable A transposition table shared with other sessions, or null for the session to have its own
+	 * @param hashIn The size of the session's own transposition table in megabytes, and the most setoption hash
+	 * allows. The table is only made when the session first searches.
+	 * @param maxMoveTimeIn The longest a search may run in milliseconds, whatever go asks for
+	 */
+	public CheckersProtocol(Consumer<String> repliesIn, Executor searchesIn, Supplier<ParallelSearch> searchersIn,
+			TranspositionTable sharedTable, int hashIn, long maxMoveTimeIn) {
+		replies=repliesIn;
+		searches=searchesIn;
+		searchers=searchersIn;
+		shared=true;
+		maxHash=hashIn;
+		maxMoveTime=maxMoveTimeIn;
+		hash=hashIn;
+		if(sharedTable!=null) {
+			table=sharedTable;
+			tableShared=true;
+			owner=table.newOwner();
+		}
+		board=new Board();
+		color='R';
+	}
+
+	public static void main(String[] args) {
+		PrintWriter out=new PrintWriter(new OutputStreamWriter(System.out));
+		CheckersProtocol protocol=new CheckersProtocol(reply -> {
+			synchronized(out) {
+				out.println(reply);
+				out.flush();
+			}
+		});
+		try {
+			protocol.run(new BufferedReader(new InputStreamReader(System.in)));
+		}catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads and carries out commands until quit or the end of the input
+	 * @param in Where commands are read from
+	 * @throws IOException
+	 */
+	public void run(BufferedReader in) throws IOException {
+		try {
+			String line;
+			while((line=in.readLine())!=null) {
+				if(!handle(line)) {
+					break;
+				}
+			}
+		}finally {
+			close();
+		}
+	}
+
+	/**
+	 * Carries out one command
+	 * @param line The command line
+	 * @return false if the command was quit
+	 */
+	public boolean handle(String line) {
+		String[] words=line.trim().split("\\s+");
+		String command=words[0];
+		if(command.isEmpty()) {
+			return true;
+		}
+		if(command.equals("quit")) {
+			return false;
+		}else if(command.equals("isready")) {
+			send("readyok");
+		}else if(command.equals("stop")) {
+			stopSearch();
+		}else if(isSearching()) {
+			send("error search running");
+		}else {
+			try {
+				switch(command) {
+				case "protocol":
+					send("id name Checkers-Java");
+					send("protocolok");
+					break;
+				case "newgame":
+					if(table!=null && !tableShared) {
+						table.clear();
+					}
+					recordGame();
+					board=new Board();
+					color='R';
+					break;
+				case "position":
+					position(words);
+					break;
+				case "moves":
+					moves();
+					break;
+				case "go":
+					go(words);
+					break;
+				case "setoption":
+					setOption(words);
+					break;
+				case "hashstats":
+					hashStats();
+					break;
+				case "stats":
+					send(lastStats==null ? "stats none" : "stats "+lastStats);
+					break;
+				default:
+					send("error unknown command "+command);
+				}
+			}catch(Exception e) {
+				send("error "+e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stops any search and releases the session's threads
+	 */
+	public void close() {
+		stopSearch();
+		recordGame();
+		if(own!=null) {
+			own.shutdown();
+		}
+	}
+
+	private void position(String[] words) {
+		int i;
+		Board position;
+		char side;
+		if(words.length>1 && words[1].equals("startpos")) {
+			position=new Board();
+			side='R';
+			i=2;
+		}else if(words.length>5 && words[1].equals("masks")) {
+			int red=Integer.parseUnsignedInt(words[2], 16);
+			int black=Integer.parseUnsignedInt(words[3], 16);
+			int kings=Integer.parseUnsignedInt(words[4], 16);
+			if((red&black)!=0 || (kings&~(red|black))!=0) {
+				throw new IllegalArgumentException("overlapping masks");
+			}
+			position=new Board(red, black, kings);
+			side=Character.toUpperCase(words[5].charAt(0));
+			if(side!='R' && side!='B') {
+				throw new IllegalArgumentException("side must be R or B");
+			}
+			i=6;
+		}else if(words.length>2 && words[1].equals("fen")) {
+			position=Board.fromFen(words[2]);
+			side=Board.fenColor(words[2]);
+			i=3;
+		}else {
+			throw new IllegalArgumentException("position needs startpos, masks red black kings side, or fen f");
+		}
+		Board start=new Board(position);
+		char startSide=side;
+		long[] played=new long[0];
+		if(i<words.length) {
+			if(!words[i].equals("moves")) {
+				throw new IllegalArgumentException("expected moves");
+			}
+			played=new long[words.length-i-1];
+			for(int ply=0; ply<played.length; ply++) {
+				legal.generate(position, side);
+				played[ply]=parseMove(legal, words[i+1+ply]);
+				if(played[ply]!=Move.NONE) {
+					position.make(played[ply]);
+				}
+				side = side=='R' ? 'B' : 'R';
+			}
+		}
+		//only replace the position once every move has been checked
+		if(gameStart==null || startSide!=gameColor || start.getHash()!=gameStart.getHash() || played.length<gameMoves.length
+				|| !Arrays.equals(gameMoves, Arrays.copyOf(played, gameMoves.length))) {
+			recordGame();
+			gameStart=start;
+			gameColor=startSide;
+		}
+		gameMoves=played;
+		board=position;
+		color=side;
+	}
+
+	/**
+	 * Sets what each finished game is handed to. It is called on the thread handling commands.
+	 * @param recorderIn The recorder, or null to record nothing
+	 */
+	public void setRecorder(Consumer<GameRecord> recorderIn) {
+		recorder=recorderIn;
+	}
+
+	/**
+	 * Hands the game the position commands were playing to the recorder, if it had any moves, and forgets it
+	 */
+	private void recordGame() {
+		if(recorder!=null && gameStart!=null && gameMoves.length>0) {
+			GameRecord.Result result=GameRecord.resultOf(board, color);
+			recorder.accept(new GameRecord(gameStart, gameColor, gameMoves, result, gameDepth, gameMoveTime, null));
+		}
+		gameStart=null;
+		gameMoves=new long[0];
+	}
+
+	private void moves() {
+		legal.generate(board, color);
+		StringBuilder reply=new StringBuilder("moves");
+		for(int i=0; i<legal.size(); i++) {
+			reply.append(' ').append(moveToString(legal.get(i), board));
+		}
+		if(legal.isEmpty()) {
+			reply.append(" pass");
+		}
+		send(reply.toString());
+	}
+
+	private void go(String[] words) {
+		int depth=ParallelSearch.MAX_DEPTH;
+		long moveTime=Long.MAX_VALUE;
+		if(words.length>2 && words[1].equals("depth")) {
+			depth=Math.max(1, Math.min(ParallelSearch.MAX_DEPTH, Integer.parseInt(words[2])));
+		}else if(words.length>2 && words[1].equals("movetime")) {
+			moveTime=Long.parseLong(words[2]);
+		}else if(words.length!=2 || !words[1].equals("infinite")) {
+			throw new IllegalArgumentException("go needs depth n, movetime ms or infinite");
+		}
+		moveTime=Math.min(moveTime, maxMoveTime);
+		gameDepth = depth==ParallelSearch.MAX_DEPTH ? 0 : depth;
+		gameMoveTime = moveTime==Long.MAX_VALUE ? 0 : moveTime;
+		Board position=board;
+		char side=color;
+		if(table==null) {
+			table=new TranspositionTable(hash, TranspositionTable.Replacement.DEPTH_PREFERRED);
+			owner=table.newOwner();
+		}
+		TranspositionTable sessionTable=table;
+		int sessionOwner=owner;
+		byte red=(byte)Integer.bitCount(position.getRedMask());
+		byte black=(byte)Integer.bitCount(position.getBlackMask());
+		int searchDepth=depth;
+		long searchTime=moveTime;
+		stopRequested=false;
+		searchRunning=true;
+		searching=CompletableFuture.runAsync(() -> {
+			long start=System.nanoTime();
+			ParallelSearch search=searchers.get();
+			String reply;
+			try {
+				search.setTable(sessionTable);
+				search.setOwner(sessionOwner);
+				running=search;
+				//the clock starts when the search does, not while it waits for a worker
+				long deadline = searchTime==Long.MAX_VALUE ? Long.MAX_VALUE : start+searchTime*1000000L;
+				long move=search.search(position, side, red, black, stopRequested ? 1 : searchDepth, deadline);
+				int score = side=='B' ? search.getBestValue() : -search.getBestValue();
+				lastStats=search.getStats();
+				reply="bestmove "+moveToString(move, position)+" score "+score+" depth "+search.getCompletedDepth()
+						+" nodes "+search.getNodes()+" time "+(System.nanoTime()-start)/1000000;
+			}catch(Exception e) {
+				reply="error "+e.getMessage();
+			}finally {
+				running=null;
+			}
+			//a client that sends go as soon as it reads the reply must find the search finished
+			searchRunning=false;
+			send(reply);
+		}, searches);
+	}
+
+	private void setOption(String[] words) throws IOException {
+		if(words.length<3) {
+			throw new IllegalArgumentException("setoption needs a name and a value");
+		}
+		switch(words[1]) {
+		case "hash":
+			if(tableShared) {
+				throw new IllegalArgumentException("hash is set for the whole server");
+			}
+			hash=Math.min(maxHash, Integer.parseInt(words[2]));
+			table=null;
+			break;
+		case "threads":
+			checkOwnSearch(words[1]);
+			threads=Math.max(1, Integer.parseInt(words[2]));
+			break;
+		case "tablebase":
+			checkOwnSearch(words[1]);
+			tablebase=Tablebase.open(Paths.get(words[2]));
+			break;
+		case "evaluation":
+			checkOwnSearch(words[1]);
+			evaluation=Evaluation.load(Paths.get(words[2]));
+			//the table's scores were judged with the old weights
+			table=null;
+			break;
+		default:
+			throw new IllegalArgumentException("unknown option "+words[1]);
+		}
+		if(!shared) {
+			own.shutdown();
+			own=new ParallelSearch(null, threads);
+			own.setTablebase(tablebase);
+			if(evaluation!=null) {
+				own.setEvaluation(evaluation);
+			}
+		}
+	}
+
+	private void hashStats() {
+		long probes = table==null ? 0 : table.getProbes();
+		long hits = table==null ? 0 : table.getHits();
+		long sharedHits = table==null ? 0 : table.getSharedHits();
+		send("hashstats probes "+probes+" hits "+hits+" sharedhits "+sharedHits);
+	}
+
+	private void checkOwnSearch(String option) {
+		if(shared) {
+			throw new IllegalArgumentException(option+" is set for the whole server");
+		}
+	}
+
+	private boolean isSearching() {
+		return searchRunning;
+	}
+
+	/**
+	 * Stops a running search and waits for its reply. A search still waiting for a worker does a single iteration.
+	 */
+	private void stopSearch() {
+		stopRequested=true;
+		while(searching!=null && !searching.isDone()) {
+			ParallelSearch search=running;
+			if(search!=null) {
+				//repeated, since a stop that lands just before the search starts is cleared by it
+				search.stop();
+			}
+			try {
+				searching.get(10, TimeUnit.MILLISECONDS);
+			}catch(TimeoutException e) {
+				//check again
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}catch(Exception e) {
+				return;
+			}
+		}
+	}
+
+	private void send(String reply) {
+		replies.accept(reply);
+	}
+
+	/**
+	 * Finds the legal move written as a path of squares
+	 * @param moves The moves of the position the move is played in
+	 * @return The move, or Move.NONE for a pass by a side that cannot move
+	 */
+	private static long parseMove(LegalMoves moves, String text) {
+		if(text.equals("pass")) {
+			if(!moves.isEmpty()) {
+				throw new IllegalArgumentException("cannot pass with moves available");
+			}
+			return Move.NONE;
+		}
+		if(text.length()<4 || text.length()%2!=0) {
+			throw new IllegalArgumentException("bad move "+text);
+		}
+		byte[] path=new byte[text.length()];
+		for(int i=0; i<text.length(); i+=2) {
+			path[i]=(byte)(Character.toUpperCase(text.charAt(i))-'A');
+			path[i+1]=(byte)(text.charAt(i+1)-'1');
+		}
+		if(!moves.contains(path)) {
+			throw new IllegalArgumentException("illegal move "+text);
+		}
+		return Move.fromPath(path);
+	}
+
+	private static String moveToString(long move, Board position) {
+		if(move==Move.NONE) {
+			return "pass";
+		}
+		byte[] path=Move.toPath(move, position.getRedMask()|position.getBlackMask());
+		StringBuilder text=new StringBuilder();
+		for(int i=0; i<path.length; i+=2) {
+			text.append((char)('A'+path[i])).append(path[i+1]+1);
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,80 @@
+package checkers;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import checkers.Record.GameRecord;
+import checkers.Record.PdnReader;
+import checkers.Record.PdnWriter;
+import checkers.Record.RecordReader;
+import checkers.Record.RecordWriter;
+
+/**
+ * Command line tool that converts game record files to and from PDN and counts what they hold. Games are streamed
+ * one at a time, so files of any size can be converted.
+ * Usage: CheckersRecord topdn records pdn | frompdn pdn records | count records
+ */
+public class CheckersRecord {
+
+	public static void main(String[] args) {
+		if(args.length<2 || (!args[0].equals("count") && args.length<3)) {
+			System.out.println("Usage: CheckersRecord topdn records pdn | frompdn pdn records | count records");
+			System.out.println("\ttopdn writes the games in a game record file as PDN text.");
+			System.out.println("\tfrompdn writes the games in PDN text to a new game record file, checking every move.");
+			System.out.println("\tcount counts the games in a game record file by result, and their moves.");
+			return;
+		}
+		try {
+			Path in=Paths.get(args[1]);
+			long start=System.nanoTime();
+			long games=0;
+			switch(args[0]) {
+			case "topdn":
+				try(RecordReader reader=RecordReader.open(in);
+						PdnWriter writer=new PdnWriter(Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8))) {
+					for(GameRecord game=reader.next(); game!=null; game=reader.next()) {
+						writer.write(game);
+						games++;
+					}
+				}
+				break;
+			case "frompdn":
+				try(PdnReader reader=new PdnReader(Files.newBufferedReader(in, StandardCharsets.UTF_8));
+						RecordWriter writer=new RecordWriter(FileChannel.open(Paths.get(args[2]), StandardOpenOption.CREATE,
+								StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+					for(GameRecord game=reader.next(); game!=null; game=reader.next()) {
+						writer.write(game);
+						games++;
+					}
+				}
+				break;
+			case "count":
+				long[] results=new long[GameRecord.Result.values().length];
+				long moves=0;
+				try(RecordReader reader=RecordReader.open(in)) {
+					for(GameRecord game=reader.next(); game!=null; game=reader.next()) {
+						results[game.getResult().ordinal()]++;
+						moves+=game.getMoveCount();
+						games++;
+					}
+				}
+				for(GameRecord.Result result : GameRecord.Result.values()) {
+					System.out.println(result+": "+results[result.ordinal()]);
+				}
+				System.out.println("Moves: "+moves);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown command "+args[0]);
+			}
+			System.out.println("Games: "+games);
+			System.out.println("Time: "+(System.nanoTime()-start)/1000000+" ms");
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,400 @@
+package checkers;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import checkers.Logic.Evaluation;
+import checkers.Logic.ParallelSearch;
+import checkers.Logic.Tablebase;
+import checkers.Logic.TranspositionTable;
+import checkers.Record.GameRecord;
+import checkers.Record.RecordWriter;
+
+/**
+ * Hosts many games in one JVM. Each connection is a session speaking the CheckersProtocol commands, served by
+ * its own virtual thread (on Java 21 and later; older JVMs use platform threads), which only does the blocking
+ * reads and writes. Searches are queued to a fixed pool of worker threads, one per core by default, so a slow
+ * client never holds a worker and a flood of searches cannot use more CPUs than the pool has.
+ * <p>
+ * The pool's queue is first come, first served, and a session can only have one search queued or running, so every
+ * session gets its turn. Each session is limited in how long a search may run, how big its transposition table may
+ * be, how long a command line may be and how many replies may wait for a slow client.
+ * <p>
+ * With -sharedhash every session searches with one transposition table of the given size, using AGED
+ * replacement, instead of a table each, so positions searched for one game help the others. The hashstats
+ * command reports how often that happens.
+ * <p>
+ * With -record every session's games are added to the given game record file (see RecordWriter) as they finish.
+ * <p>
+ * Without -sessions the limit is worked out from the heap: as many sessions as half the JVM's maximum heap has room
+ * for tables of the -hash size, up to DEFAULT_SESSIONS, so a full server cannot run out of memory on its tables.
+ * <p>
+ * Usage: CheckersServer [-port n | -unix path] [-workers n] [-sessions n] [-hash mb | -sharedhash mb] [-movetime ms] [-tablebase file]
+ * [-evaluation file] [-record file]
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class CheckersServer {
+	public static final int DEFAULT_PORT=7320;
+	/** The most sessions open at once when -sessions is not given and the heap has room for them */
+	public static final int DEFAULT_SESSIONS=10000;
+	public static final int DEFAULT_HASH_MB=1;
+	public static final long DEFAULT_MOVE_TIME_MS=5000;
+	static final int ACCEPT_BACKLOG=1024;
+	/** Longest command line a session may send */
+	static final int MAX_LINE=4096;
+	/** Most replies that may wait for a client to read them before its session is closed */
+	static final int MAX_PENDING_REPLIES=256;
+	//marks the end of a session's replies
+	private static final String END=new String("end");
+
+	private final ServerSocketChannel server;
+	private final ExecutorService connections;
+	private final ThreadPoolExecutor workers;
+	private final ThreadLocal<ParallelSearch> searchers;
+	private final Semaphore sessions;
+	private final TranspositionTable table;
+	private final int hash;
+	private final long maxMoveTime;
+	private volatile RecordWriter records;
+
+	/**
+	 * @param address Where to listen: an InetSocketAddress or a UnixDomainSocketAddress
+	 * @param workerThreads The number of threads searches run on
+	 * @param maxSessions The most sessions open at once. Further connections are refused.
+	 * @param sharedTable A transposition table every session shares, or null for each to have its own
+	 * @param hashIn Each session's own transposition table size in megabytes
+	 * @param maxMoveTimeIn The longest a search may run, in milliseconds
+	 * @param tablebase A tablebase for every search to use, or null
+	 * @param evaluation The weights every search judges positions by, or null for the defaults
+	 * @throws IOException
+	 */
+	public CheckersServer(SocketAddress address, int workerThreads, int maxSessions, TranspositionTable sharedTable, int hashIn, long maxMoveTimeIn,
+			Tablebase tablebase, Evaluation evaluation) throws IOException {
+		server = address instanceof UnixDomainSocketAddress ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+		//a burst of clients connecting at once should wait, not be refused
+		server.bind(address, ACCEPT_BACKLOG);
+		connections=newConnectionExecutor();
+		workers=(ThreadPoolExecutor)Executors.newFixedThreadPool(workerThreads, r -> {
+			Thread t=new Thread(r, "checkers-search-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		//each worker keeps one search and lends it to whichever session's search it runs
+		searchers=ThreadLocal.withInitial(() -> {
+			ParallelSearch search=new ParallelSearch(null, 1);
+			search.setTablebase(tablebase);
+			if(evaluation!=null) {
+				search.setEvaluation(evaluation);
+			}
+			return search;
+		});
+		sessions=new Semaphore(maxSessions);
+		table=sharedTable;
+		if(table!=null) {
+			//entries stay protected while the other searches running alongside them start
+			table.setAgeWindow(4*workerThreads);
+		}
+		hash=hashIn;
+		maxMoveTime=maxMoveTimeIn;
+	}
+
+	public static void main(String[] args) {
+		try {
+			SocketAddress address=new InetSocketAddress(InetAddress.getLoopbackAddress(), DEFAULT_PORT);
+			int workerThreads=Runtime.getRuntime().availableProcessors();
+			int maxSessions=0;
+			int hashIn=DEFAULT_HASH_MB;
+			TranspositionTable sharedTable=null;
+			long moveTime=DEFAULT_MOVE_TIME_MS;
+			Tablebase tablebase=null;
+			Evaluation evaluation=null;
+			Path unixPath=null;
+			Path recordPath=null;
+			for(int i=0; i<args.length; i++) {
+				switch(args[i]) {
+				case "-port":
+					address=new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[++i]));
+					break;
+				case "-unix":
+					unixPath=Paths.get(args[++i]);
+					address=UnixDomainSocketAddress.of(unixPath);
+					break;
+				case "-workers":
+					workerThreads=Integer.parseInt(args[++i]);
+					break;
+				case "-sessions":
+					maxSessions=Integer.parseInt(args[++i]);
+					break;
+				case "-hash":
+					hashIn=Integer.parseInt(args[++i]);
+					break;
+				case "-sharedhash":
+					sharedTable=new TranspositionTable(Integer.parseInt(args[++i]), TranspositionTable.Replacement.AGED);
+					break;
+				case "-movetime":
+					moveTime=Long.parseLong(args[++i]);
+					break;
+				case "-tablebase":
+					tablebase=Tablebase.open(Paths.get(args[++i]));
+					break;
+				case "-evaluation":
+					evaluation=Evaluation.load(Paths.get(args[++i]));
+					break;
+				case "-record":
+					recordPath=Paths.get(args[++i]);
+					break;
+				default:
+					System.out.println("Usage: CheckersServer [-port n | -unix path] [-workers n] [-sessions n] [-hash mb | -sharedhash mb] [-movetime ms] [-tablebase file] [-evaluation file] [-record file]");
+					System.out.println("\t-sessions defaults to as many -hash mb tables as fit in half the maximum heap, at most "+DEFAULT_SESSIONS+".");
+					return;
+				}
+			}
+			if(maxSessions==0) {
+				maxSessions=defaultSessions(sharedTable==null ? hashIn : 0);
+			}
+			if(unixPath!=null) {
+				Files.deleteIfExists(unixPath);
+			}
+			CheckersServer checkersServer=new CheckersServer(address, workerThreads, maxSessions, sharedTable, hashIn, moveTime, tablebase, evaluation);
+			if(recordPath!=null) {
+				checkersServer.setRecords(RecordWriter.append(recordPath));
+			}
+			System.out.println("Listening on "+checkersServer.getAddress()+" with "+workerThreads+" search workers for up to "
+					+maxSessions+" sessions");
+			checkersServer.serve();
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Gets how many sessions half the JVM's maximum heap has room for, at most DEFAULT_SESSIONS
+	 * @param hashMb Each session's own transposition table size in megabytes, or 0 if they share one
+	 */
+	public static int defaultSessions(int hashMb) {
+		if(hashMb<=0) {
+			return DEFAULT_SESSIONS;
+		}
+		long fit=Runtime.getRuntime().maxMemory()/2/(hashMb*1024L*1024L);
+		return (int)Math.max(1, Math.min(DEFAULT_SESSIONS, fit));
+	}
+
+	/**
+	 * Sets where sessions' finished games are written. The writer is closed with the server.
+	 * @param recordsIn The writer, or null to record nothing
+	 */
+	public void setRecords(RecordWriter recordsIn) {
+		records=recordsIn;
+	}
+
+	public SocketAddress getAddress() throws IOException {
+		return server.getLocalAddress();
+	}
+
+	/**
+	 * Accepts connections until the server is closed
+	 * @throws IOException
+	 */
+	public void serve() throws IOException {
+		while(server.isOpen()) {
+			SocketChannel channel;
+			try {
+				channel=server.accept();
+			}catch(IOException e) {
+				if(!server.isOpen()) {
+					break;
+				}
+				throw e;
+			}
+			if(!sessions.tryAcquire()) {
+				try {
+					write(channel, new StringBuilder("error server full\n"));
+				}catch(IOException e) {
+					//the client is gone anyway
+				}
+				closeQuietly(channel);
+				continue;
+			}
+			connections.execute(() -> {
+				try {
+					session(channel);
+				}finally {
+					sessions.release();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stops accepting connections and stops the worker threads
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		server.close();
+		connections.shutdownNow();
+		workers.shutdownNow();
+		if(records!=null) {
+			records.close();
+		}
+	}
+
+	/**
+	 * Gets the number of searches waiting for a worker
+	 */
+	public int getQueuedSearches() {
+		return workers.getQueue().size();
+	}
+
+	/**
+	 * Serves one connection on the calling thread until it quits or disconnects. Replies are written by a second
+	 * connection thread, so a search finishing never waits for the client.
+	 */
+	private void session(SocketChannel channel) {
+		BlockingQueue<String> replies=new ArrayBlockingQueue<String>(MAX_PENDING_REPLIES);
+		Consumer<String> send=reply -> {
+			if(!replies.offer(reply)) {
+				//the client is not reading its replies
+				closeQuietly(channel);
+			}
+		};
+		CheckersProtocol protocol=new CheckersProtocol(send, workers, searchers::get, table, hash, maxMoveTime);
+		RecordWriter sessionRecords=records;
+		if(sessionRecords!=null) {
+			protocol.setRecorder(game -> record(sessionRecords, game));
+		}
+		Future<?> writer=connections.submit(() -> writeReplies(channel, replies));
+		//the channel is read and written directly: its stream adapters would make the writer wait for a blocked read
+		ByteBuffer buffer=ByteBuffer.allocate(1024);
+		StringBuilder line=new StringBuilder();
+		boolean tooLong=false;
+		boolean open=true;
+		try {
+			while(open && channel.read(buffer)>=0) {
+				buffer.flip();
+				while(open && buffer.hasRemaining()) {
+					//commands are ASCII
+					char c=(char)(buffer.get()&0xFF);
+					if(c!='\n') {
+						if(line.length()<MAX_LINE) {
+							line.append(c);
+						}else {
+							tooLong=true;
+						}
+					}else if(tooLong) {
+						send.accept("error line too long");
+						tooLong=false;
+						line.setLength(0);
+					}else {
+						open=protocol.handle(line.toString());
+						line.setLength(0);
+					}
+				}
+				buffer.clear();
+			}
+		}catch(IOException e) {
+			//disconnected
+		}finally {
+			//waits for a running search to reply
+			protocol.close();
+			if(replies.offer(END)) {
+				try {
+					writer.get(1, TimeUnit.SECONDS);
+				}catch(Exception e) {
+					//closed below
+				}
+			}
+			writer.cancel(true);
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Writes replies until END, sending whatever is waiting in one write
+	 */
+	private static void writeReplies(SocketChannel channel, BlockingQueue<String> replies) {
+		try {
+			StringBuilder batch=new StringBuilder();
+			String reply=replies.take();
+			while(reply!=END) {
+				batch.append(reply).append('\n');
+				reply=replies.poll();
+				if(reply==null) {
+					write(channel, batch);
+					reply=replies.take();
+				}
+			}
+			write(channel, batch);
+		}catch(IOException | InterruptedException e) {
+			//the session is over
+		}
+	}
+
+	private static void write(SocketChannel channel, StringBuilder text) throws IOException {
+		ByteBuffer bytes=ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+		while(bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		text.setLength(0);
+	}
+
+	/**
+	 * Writes out a finished game at once, so a server that is killed loses none
+	 */
+	private static void record(RecordWriter writer, GameRecord game) {
+		try {
+			synchronized(writer) {
+				writer.write(game);
+				writer.flush();
+			}
+		}catch(IOException e) {
+			//the session goes on without it
+			e.printStackTrace();
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		try {
+			channel.close();
+		}catch(IOException e) {
+			//already closed
+		}
+	}
+
+	/**
+	 * Creates an executor that runs each task on a new virtual thread, or on a cached platform thread if the JVM
+	 * does not have them. It is looked up by reflection so the engine still builds for Java 17.
+	 */
+	private static ExecutorService newConnectionExecutor() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}catch(ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(r -> {
+				Thread t=new Thread(r, "checkers-connection");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+}
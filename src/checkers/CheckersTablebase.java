@@ -0,0 +1,33 @@
+package checkers;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import checkers.Logic.TablebaseGenerator;
+
+/**
+ * Command line tool that builds an endgame tablebase file.
+ * Usage: CheckersTablebase pieces file [-distances]
+ */
+public class CheckersTablebase {
+
+	public static void main(String[] args) {
+		if(args.length<2) {
+			System.out.println("Usage: CheckersTablebase pieces file [-distances]");
+			System.out.println("\tBuilds win/loss/draw results for every position with up to the given number of pieces.");
+			System.out.println("\t-distances also records the number of moves to the end of the game.");
+			return;
+		}
+		try {
+			int pieces=Integer.parseInt(args[0]);
+			Path file=Paths.get(args[1]);
+			boolean distances=args.length>2 && args[2].equals("-distances");
+			long start=System.nanoTime();
+			new TablebaseGenerator(pieces, distances, System.out).generate(file);
+			System.out.println("Wrote "+file+" in "+(System.nanoTime()-start)/1000000+" ms");
+		}catch(Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
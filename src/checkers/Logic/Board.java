@@ -1,92 +1,324 @@
 package checkers.Logic;
 
+/**
+ * The game board, stored as bitboards over the 32 playable (dark) squares.
+ * Square n is at row n/4, column 2*(n%4)+(row%2), so bit n of each mask is set
+ * when that square holds a red piece, a black piece or a king respectively.
+ */
 public class Board{
-	private Piece[][] pieces;
-	private static final boolean debug=true;
-	
+	private int red;
+	private int black;
+	private int kings;
+	private long hash;
+	private static final boolean debug=false;
+
 	public Board(){
-		pieces=new Piece[8][8];
-		for(int r=0; r<3; r++){
-			for(int c=0; c<8; c++){
-				if(c%2==r%2){
-					pieces[r][c]=new Piece('B');
-				}
-			}
+		//black fills rows 0-2 (squares 0-11), red fills rows 5-7 (squares 20-31)
+		black=0x00000FFF;
+		red=0xFFF00000;
+		kings=0;
+		hash=Zobrist.hash(red, black, kings);
+	}
+
+	/**
+	 * Constructs a board from piece masks
+	 * @param redIn The squares holding red pieces
+	 * @param blackIn The squares holding black pieces
+	 * @param kingsIn The squares holding kings of either color
+	 */
+	public Board(int redIn, int blackIn, int kingsIn){
+		red=redIn;
+		black=blackIn;
+		kings=kingsIn&(redIn|blackIn);
+		hash=Zobrist.hash(red, black, kings);
+	}
+
+	public Board(Board boardIn){
+		red=boardIn.red;
+		black=boardIn.black;
+		kings=boardIn.kings;
+		hash=boardIn.hash;
+	}
+
+	/**
+	 * Converts a row and column into a playable square index
+	 * @param rowIn
+	 * @param colIn
+	 * @return The square index (0-31), or -1 if the position is off the board or not playable
+	 */
+	public static int square(int rowIn, int colIn){
+		if(rowIn<0 || rowIn>7 || colIn<0 || colIn>7 || colIn%2!=rowIn%2){
+			return -1;
+		}
+		return (rowIn<<2)|(colIn>>1);
+	}
+
+	public static int row(int squareIn){
+		return squareIn>>2;
+	}
+
+	public static int col(int squareIn){
+		return ((squareIn&3)<<1)|((squareIn>>2)&1);
+	}
+
+	/**
+	 * Converts a square index into its standard checkers (PDN) number. The numbers run 1-32 from black's back rank,
+	 * which reads 4 3 2 1 from left to right as the board is laid out, so black starts on 1-12 and red on 21-32.
+	 * @param squareIn The square index (0-31)
+	 */
+	public static int squareToNumber(int squareIn){
+		return (squareIn&~3)+4-(squareIn&3);
+	}
+
+	/**
+	 * Converts a standard checkers (PDN) square number into a square index
+	 * @param numberIn 1-32
+	 * @throws IllegalArgumentException if the number is not 1-32
+	 */
+	public static int numberToSquare(int numberIn){
+		if(numberIn<1 || numberIn>32){
+			throw new IllegalArgumentException("no square "+numberIn);
 		}
-		for(int r=5; r<8; r++){
-			for(int c=0; c<8; c++){
-				if(c%2==r%2){
-					pieces[r][c]=new Piece('R');
+		return ((numberIn-1)&~3)+3-((numberIn-1)&3);
+	}
+
+	/**
+	 * Reads the pieces of a position in checkers FEN, such as W:W21,22,K30:B1-12. Red is FEN's White and black is
+	 * its Black, squares are numbered as in squareToNumber, K marks a king and a range stands for every square in it.
+	 * @param fen
+	 * @return The board. The side to move is read with fenColor.
+	 * @throws IllegalArgumentException if the string is not a position
+	 */
+	public static Board fromFen(String fen){
+		String[] fields=fenFields(fen);
+		int[] masks=new int[3];
+		for(int i=1; i<fields.length; i++){
+			String field=fields[i].trim();
+			if(field.isEmpty()){
+				continue;
+			}
+			int side;
+			if(field.charAt(0)=='W'){
+				side=0;
+			}else if(field.charAt(0)=='B'){
+				side=1;
+			}else{
+				throw new IllegalArgumentException("FEN field must start with W or B: "+field);
+			}
+			for(String item : field.substring(1).split(",")){
+				item=item.trim();
+				if(item.isEmpty()){
+					continue;
+				}
+				boolean king=item.charAt(0)=='K';
+				String[] range=(king ? item.substring(1) : item).split("-");
+				int first;
+				int last;
+				try{
+					first=Integer.parseInt(range[0].trim());
+					last = range.length>1 ? Integer.parseInt(range[1].trim()) : first;
+				}catch(NumberFormatException e){
+					throw new IllegalArgumentException("not a FEN square: "+item);
+				}
+				for(int number=first; number<=last; number++){
+					int bit=1<<numberToSquare(number);
+					if(((masks[0]|masks[1])&bit)!=0){
+						throw new IllegalArgumentException("FEN has two pieces on "+number);
+					}
+					masks[side]|=bit;
+					if(king){
+						masks[2]|=bit;
+					}
 				}
 			}
 		}
+		return new Board(masks[0], masks[1], masks[2]);
 	}
-	
-	public Board(Board boardIn){
-		pieces=new Piece[8][8];
-		for(int i=0; i<8; i++){
-			for(int j=0; j<8; j++){
-				pieces[i][j]=boardIn.pieces[i][j];
+
+	/**
+	 * Reads the side to move of a position in checkers FEN
+	 * @param fen
+	 * @return 'R' for W or 'B' for B
+	 * @throws IllegalArgumentException if the string does not start with the side to move
+	 */
+	public static char fenColor(String fen){
+		return fenFields(fen)[0].trim().equals("W") ? 'R' : 'B';
+	}
+
+	private static String[] fenFields(String fen){
+		String[] fields=fen.trim().replaceAll("\\.$", "").split(":");
+		String side=fields[0].trim();
+		if(!side.equals("W") && !side.equals("B")){
+			throw new IllegalArgumentException("FEN must start with the side to move, W or B: "+fen);
+		}
+		return fields;
+	}
+
+	/**
+	 * Writes the position in checkers FEN (see fromFen)
+	 * @param colorIn The side to move
+	 */
+	public String toFen(char colorIn){
+		return (colorIn=='R' ? "W" : "B")+":W"+fenSquares(red)+":B"+fenSquares(black);
+	}
+
+	private String fenSquares(int pieces){
+		StringBuilder list=new StringBuilder();
+		for(int number=1; number<=32; number++){
+			int sq=numberToSquare(number);
+			if((pieces&(1<<sq))!=0){
+				if(list.length()>0){
+					list.append(',');
+				}
+				if((kings&(1<<sq))!=0){
+					list.append('K');
+				}
+				list.append(number);
 			}
 		}
+		return list.toString();
 	}
-	
+
+	/**
+	 * Builds a Piece array view of the board. The array is a snapshot; changing it does not change the board.
+	 * @return The pieces indexed by [row][column]
+	 */
 	public Piece[][] getPieces(){
+		Piece[][] pieces=new Piece[8][8];
+		int occupied=red|black;
+		while(occupied!=0){
+			int sq=Integer.numberOfTrailingZeros(occupied);
+			occupied&=occupied-1;
+			pieces[row(sq)][col(sq)]=pieceAt(sq);
+		}
 		return pieces;
 	}
-	
+
+	/**
+	 * Gets the piece at a position
+	 * @param rowIn
+	 * @param colIn
+	 * @return The piece, or null if the position is empty or not on the board
+	 */
+	public Piece pieceAt(int rowIn, int colIn){
+		int sq=square(rowIn, colIn);
+		return sq<0 ? null : pieceAt(sq);
+	}
+
+	private Piece pieceAt(int sq){
+		if(((red|black)&(1<<sq))==0){
+			return null;
+		}
+		return Piece.of((red&(1<<sq))!=0 ? 'R' : 'B', (kings&(1<<sq))!=0);
+	}
+
+	/**
+	 * Gets the color of the piece at a position
+	 * @param rowIn
+	 * @param colIn
+	 * @return 'R' or 'B', or '\0' if the position is empty or not on the board
+	 */
+	public char colorAt(int rowIn, int colIn){
+		int sq=square(rowIn, colIn);
+		if(sq<0){
+			return '\0';
+		}else if((red&(1<<sq))!=0){
+			return 'R';
+		}else if((black&(1<<sq))!=0){
+			return 'B';
+		}
+		return '\0';
+	}
+
+	public boolean isKing(int rowIn, int colIn){
+		int sq=square(rowIn, colIn);
+		return sq>=0 && (kings&(1<<sq))!=0;
+	}
+
+	public int getRedMask(){
+		return red;
+	}
+
+	public int getBlackMask(){
+		return black;
+	}
+
+	public int getKingMask(){
+		return kings;
+	}
+
+	/**
+	 * Gets the Zobrist hash of the pieces on the board. It does not include the side to move.
+	 */
+	public long getHash(){
+		return hash;
+	}
+
 	public boolean validateMove(char colorIn, byte[] moveIn) throws Exception{
-		
-		return validateMove(colorIn, moveIn, pieces);
+
+		return validateMove(colorIn, moveIn, 0, red, black, kings);
 	}
-	
-	private boolean validateMove(char colorIn, byte[] moveIn, Piece[][] piecesIn) throws Exception{
-		if(moveIn.length%2!=0||moveIn.length<4) {
+
+	/**
+	 * Validates the part of moveIn starting at index start against the given masks. Multi-hops are checked
+	 * by recursing with the masks updated for the hop, so no board copies are made.
+	 */
+	private boolean validateMove(char colorIn, byte[] moveIn, int start, int redIn, int blackIn, int kingsIn) throws Exception{
+		int len=moveIn.length-start;
+		if(len%2!=0||len<4) {
 			//not a complete move
 			return false;
 		}
-		//if the position being moved from is empty or contains a piece that is not of the user's color or
+		int from=square(moveIn[start], moveIn[start+1]);
+		int to=square(moveIn[start+2], moveIn[start+3]);
+		int own = colorIn=='R' ? redIn : blackIn;
+		int opp = colorIn=='R' ? blackIn : redIn;
+		//if the position being moved from is not on the board or does not contain a piece of the user's color or
 		//if the move is to the same position as the current position
-		if(piecesIn[moveIn[0]][moveIn[1]]==null || 
-				piecesIn[moveIn[0]][moveIn[1]].color!=colorIn || 
-				(moveIn[0]==moveIn[2] && moveIn[1]==moveIn[3])){
+		if(from<0 || (own&(1<<from))==0 || from==to){
 			return false;
 		}
-		
-		byte vDelta = (byte)(moveIn[2]-moveIn[0]);
-		byte hDelta = (byte)(moveIn[3]-moveIn[1]);
-		
+
+		byte vDelta = (byte)(moveIn[start+2]-moveIn[start]);
+		byte hDelta = (byte)(moveIn[start+3]-moveIn[start+1]);
+
 		//if the move is within the bounds of the board and
 		//if the move would be to an empty space
-		if(moveIn[2]>=0 && moveIn[2]<8 && moveIn[3]>=0 && moveIn[3]<8 && piecesIn[moveIn[2]][moveIn[3]]==null){
+		if(to>=0 && ((redIn|blackIn)&(1<<to))==0){
+			boolean king=(kingsIn&(1<<from))!=0;
 			//if the piece is traveling in the wrong direction up or down the board
-			if(!piecesIn[moveIn[0]][moveIn[1]].king &&
+			if(!king &&
 					((colorIn=='R' && vDelta > 0) ||
 					 (colorIn=='B' && vDelta < 0))) {
 				return false;
 			}
-			
+
 			//if moving 1 diagonal space and there are only 2 positions in moveIn, test move
-			if((vDelta == -1 || vDelta == 1) && (hDelta == -1 || hDelta == 1) && moveIn.length==4) {
+			if((vDelta == -1 || vDelta == 1) && (hDelta == -1 || hDelta == 1) && len==4) {
 				return true;
-				
+
 			//if moving 2 diagonal spaces, test jump
 			}else if((vDelta == -2 || vDelta == 2) && (hDelta == -2 || hDelta == 2)) {
+				int jumped=Geometry.JUMPED[from<<5|to];
 				//if there is a piece in that position and it is not of the same color
-				if(piecesIn[moveIn[0]+(vDelta/2)][moveIn[1]+(hDelta/2)] != null && piecesIn[moveIn[0]+(vDelta/2)][moveIn[1]+(hDelta/2)].color!=colorIn){
+				if((opp&(1<<jumped))!=0){
 					//if there are no further hops intended
-					if(moveIn.length==4) {
+					if(len==4) {
 						return true;
 					}else{
-						int d = moveIn[5]-moveIn[3];
+						int d = moveIn[start+5]-moveIn[start+3];
 						if(d == -2 || d == 2) {
-							byte[] checkMove=new byte[moveIn.length-2];
-							for(int i=2; i<moveIn.length; i++) {
-								checkMove[i-2]=moveIn[i];
+							int moved=(1<<from)^(1<<to);
+							own^=moved;
+							opp&=~(1<<jumped);
+							if(king){
+								kingsIn^=moved;
+							}
+							kingsIn&=~(1<<jumped);
+							if(colorIn=='R'){
+								return validateMove(colorIn, moveIn, start+2, own, opp, kingsIn);
 							}
-							Board tempBoard=new Board(this);
-							tempBoard.movePiece(moveIn);
-							return validateMove(colorIn, checkMove, tempBoard.getPieces());
+							return validateMove(colorIn, moveIn, start+2, opp, own, kingsIn);
 						}
 					}
 				}
@@ -94,20 +326,94 @@ public class Board{
 		}
 		return false;
 	}
-	
+
+	/**
+	 * Makes a packed move that is known to be valid, removing captured pieces and kinging a man that reaches the far row
+	 * @param move See Move
+	 * @return The king mask from before the move, to be passed back to unmake
+	 */
+	public int make(long move) {
+		int kingsBefore=kings;
+		int from=Move.from(move);
+		int to=Move.to(move);
+		int moved=(1<<from)^(1<<to);
+		int captured=Move.captured(move);
+		if((kings&(1<<from))!=0) {
+			kings^=moved;
+		}
+		kings&=~captured;
+		if((red&(1<<from))!=0) {
+			red^=moved;
+			black&=~captured;
+			kings|=(1<<to)&Geometry.RED_PROMOTION;
+		}else {
+			black^=moved;
+			red&=~captured;
+			kings|=(1<<to)&Geometry.BLACK_PROMOTION;
+		}
+		hash^=moveKey(move, kingsBefore);
+		return kingsBefore;
+	}
+
+	/**
+	 * Takes back a move made with make
+	 * @param move The move that was made
+	 * @param kingsBefore The value make returned
+	 */
+	public void unmake(long move, int kingsBefore) {
+		hash^=moveKey(move, kingsBefore);
+		int moved=(1<<Move.from(move))^(1<<Move.to(move));
+		int captured=Move.captured(move);
+		if((red&(1<<Move.to(move)))!=0) {
+			red^=moved;
+			black|=captured;
+		}else {
+			black^=moved;
+			red|=captured;
+		}
+		kings=kingsBefore;
+	}
+
+	/**
+	 * Gets the change in hash made by a move. It is called while the moved piece is on its destination square.
+	 */
+	private long moveKey(long move, int kingsBefore) {
+		int from=Move.from(move);
+		int to=Move.to(move);
+		boolean redMoved=(red&(1<<to))!=0;
+		long key=Zobrist.PIECE[Zobrist.type(redMoved, (kingsBefore&(1<<from))!=0)][from]^
+				Zobrist.PIECE[Zobrist.type(redMoved, (kings&(1<<to))!=0)][to];
+		int captured=Move.captured(move);
+		while(captured!=0) {
+			int sq=Integer.numberOfTrailingZeros(captured);
+			captured&=captured-1;
+			key^=Zobrist.PIECE[Zobrist.type(!redMoved, (kingsBefore&(1<<sq))!=0)][sq];
+		}
+		return key;
+	}
+
 	public boolean movePiece(byte rFr, byte cFr, byte rTo, byte cTo) {
 		byte[] move = {rFr, cFr, rTo, cTo};
 		return movePiece(move);
 	}
-	
+
 	public boolean movePiece(byte[] move){
 		boolean success=false;
-		if(addPiece(move[2], move[3], pieces[move[0]][move[1]])){
-			if(removePiece(move[0], move[1])){
+		int from=square(move[0], move[1]);
+		int to=square(move[2], move[3]);
+		if(from>=0 && to>=0 && ((red|black)&(1<<to))==0){
+			int moved=(1<<from)^(1<<to);
+			if((red&(1<<from))!=0){
+				red^=moved;
 				success=true;
-			}else{
-				removePiece(move[2], move[3]);
+			}else if((black&(1<<from))!=0){
+				black^=moved;
+				success=true;
+			}
+			if(success && (kings&(1<<from))!=0){
+				kings^=moved;
 			}
+			hash=Zobrist.hash(red, black, kings);
 		}else{
 			if(debug){
 				System.out.println("failed addPiece");
@@ -115,57 +421,73 @@ public class Board{
 		}
 		return success;
 	}
-	
+
 	public boolean kingPiece(byte[] move, char colorIn) {
 		boolean success=false;
 		byte lastRow=move[move.length-2];
 		byte lastCol=move[move.length-1];
 		if((colorIn=='R' && lastRow==0) || (colorIn=='B' && lastRow==7)) {
-			//Piece needs to be copied to avoid kinging pieces in ALL instances/states of the board
-			pieces[lastRow][lastCol]=new Piece(pieces[lastRow][lastCol]);
-			pieces[lastRow][lastCol].king = true;
-			success=true;
+			int sq=square(lastRow, lastCol);
+			if(sq>=0){
+				kings|=(1<<sq)&(red|black);
+				hash=Zobrist.hash(red, black, kings);
+				success=true;
+			}
 		}
 		return success;
 	}
-	
+
 	public boolean removePiece(byte rowIn, byte colIn){
 		boolean success=false;
-		if(pieces[rowIn][colIn]!=null){
-			pieces[rowIn][colIn]=null;
+		int sq=square(rowIn, colIn);
+		if(sq>=0 && ((red|black)&(1<<sq))!=0){
+			int mask=~(1<<sq);
+			red&=mask;
+			black&=mask;
+			kings&=mask;
+			hash=Zobrist.hash(red, black, kings);
 			success=true;
 		}
 		return success;
 	}
-	
+
 	public boolean addPiece(byte rowIn, byte colIn, Piece pieceIn){
 		boolean success=false;
-		if(pieces[rowIn][colIn]==null){
-			pieces[rowIn][colIn]=pieceIn;
+		int sq=square(rowIn, colIn);
+		if(sq>=0 && pieceIn!=null && ((red|black)&(1<<sq))==0){
+			if(pieceIn.getColor()=='R'){
+				red|=1<<sq;
+			}else{
+				black|=1<<sq;
+			}
+			if(pieceIn.isKing()){
+				kings|=1<<sq;
+			}
+			hash=Zobrist.hash(red, black, kings);
 			success=true;
 		}
 		return success;
 	}
-		
+
 	public String toString(){
-		String str="    1  2  3  4  5  6  7  8\n";
+		StringBuilder str=new StringBuilder("    1  2  3  4  5  6  7  8\n");
 		for(int r=0; r<17; r++){
 			if(r%2==1){
-				str+=(char)(65+(r/2))+" |";
+				str.append((char)(65+(r/2))).append(" |");
 				for(int c=0; c<8; c++){
-					if(pieces[(int)(r/2)][c]!=null){
-						str+=pieces[(int)(r/2)][c].toString();
-						str+="|";
+					Piece piece=pieceAt(r/2, c);
+					if(piece!=null){
+						str.append(piece).append("|");
 					}else{
-						str+="  |";
+						str.append("  |");
 					}
 				}
-				str+="\n";
+				str.append("\n");
 			}else{
-				str+="   -- -- -- -- -- -- -- --\n";
+				str.append("   -- -- -- -- -- -- -- --\n");
 			}
 		}
-		return str;
+		return str.toString();
 	}
-	
+
 }
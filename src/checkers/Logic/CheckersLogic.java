@@ -1,37 +1,154 @@
 package checkers.Logic;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-//TODO: FIX: black kings do not always move, sometimes resulting in invalid passes
 //TODO: verify javadocs param comments are accurate
 public class CheckersLogic {
 	
-	private Node root;
+	private Board board;
+	private char color;
 	private byte gameDepth;
+	private ParallelSearch search;
+	private TranspositionTable table;
+	private byte[] lastMove;
+	private LegalMoves legalMoves;
+	private boolean pondering;
+	private boolean ponderAllReplies;
+	private ExecutorService ponderer;
+	private Future<Long> ponder;
+	//the reply being pondered, or Move.NONE when every reply is
+	private long ponderReply;
+	//the move found for a reply the user played, if its search finished
+	private long ponderMove;
+	private long ponderHits;
+	//the position the moves in history were played from
+	private Board startBoard;
+	private char startColor;
+	private long[] history;
+	private int historyLength;
+
+	/** Size of the transposition table used when none is given */
+	public static final int DEFAULT_TABLE_MB=16;
 
 	/**
 	 * Constructs an instance of the game
 	 * @param depth The number of moves ahead the computer will look
 	 */
 	public CheckersLogic(byte depth) {
-		root = new Node();
+		this(depth, new TranspositionTable(DEFAULT_TABLE_MB, TranspositionTable.Replacement.DEPTH_PREFERRED));
+	}
+
+	/**
+	 * Constructs an instance of the game
+	 * @param depth The number of moves ahead the computer will look
+	 * @param table The transposition table the computer keeps its search results in for the whole game.
+	 * TranspositionTable.shared() shares one table between every game in the process.
+	 */
+	public CheckersLogic(byte depth, TranspositionTable table) {
+		this(depth, table, 1);
+	}
+
+	/**
+	 * Constructs an instance of the game
+	 * @param depth The number of moves ahead the computer will look
+	 * @param table The transposition table the computer keeps its search results in for the whole game
+	 * @param threads The number of threads the computer searches with. 1 gives the serial, deterministic search.
+	 */
+	public CheckersLogic(byte depth, TranspositionTable table, int threads) {
+		this(depth, table, threads, new Board(), 'R');
+	}
+
+	/**
+	 * Constructs an instance of the game starting from a position
+	 * @param depth The number of moves ahead the computer will look
+	 * @param fen The position and side to move in checkers FEN (see Board.fromFen)
+	 * @throws IllegalArgumentException if the string is not a position
+	 */
+	public CheckersLogic(byte depth, String fen) {
+		this(depth, new TranspositionTable(DEFAULT_TABLE_MB, TranspositionTable.Replacement.DEPTH_PREFERRED), 1,
+				Board.fromFen(fen), Board.fenColor(fen));
+	}
+
+	/**
+	 * Constructs an instance of the game starting from a position
+	 * @param depth The number of moves ahead the computer will look
+	 * @param table The transposition table the computer keeps its search results in for the whole game
+	 * @param threads The number of threads the computer searches with. 1 gives the serial, deterministic search.
+	 * @param boardIn The position, which the game plays on
+	 * @param colorIn The side to move: 'R' for the user or 'B' for the computer
+	 */
+	public CheckersLogic(byte depth, TranspositionTable table, int threads, Board boardIn, char colorIn) {
+		board = boardIn;
+		color = colorIn;
 		gameDepth = depth;
+		search = new ParallelSearch(table, threads);
+		search.setOwner(table.newOwner());
+		this.table = table;
+		lastMove = new byte[0];
+		legalMoves = new LegalMoves(board, color);
+		ponderMove = Move.NONE;
+		history = new long[64];
+		startHistory();
 	}
 	
+	/**
+	 * Replaces the game position
+	 * @param boardIn
+	 * @param colorIn The side to move
+	 */
+	public void setPosition(Board boardIn, char colorIn) {
+		stopPondering(Move.NONE);
+		//a reply pondered for the old position does not fit the new one
+		ponderMove=Move.NONE;
+		board = boardIn;
+		color = colorIn;
+		legalMoves.generate(board, color);
+		startHistory();
+	}
+
+	/**
+	 * Replaces the game position
+	 * @param fen The position and side to move in checkers FEN (see Board.fromFen)
+	 * @throws IllegalArgumentException if the string is not a position
+	 */
+	public void setPosition(String fen) {
+		setPosition(Board.fromFen(fen), Board.fenColor(fen));
+	}
+
+	/**
+	 * Gets the game position and side to move in checkers FEN
+	 */
+	public String getFen() {
+		return board.toFen(color);
+	}
+
+	/**
+	 * Gets the side to move: 'R' for the user or 'B' for the computer
+	 */
+	public char getColor() {
+		return color;
+	}
+
 	/**
 	 * Gets the board with the pieces, their positions and other data
 	 * @return The current game board
 	 */
 	public Board getBoard() {
-		return root.nodeBoard;
+		return board;
 	}
 	
 	/**
 	 * Returns true if either side has no pieces (or kings)
 	 */
 	public boolean gameOver() {
-		return root.redPieces==0 || root.blackPieces==0;
+		return board.getRedMask()==0 || board.getBlackMask()==0;
 	}
 	
 	/**
@@ -41,7 +158,7 @@ public class CheckersLogic {
 	public char getWinner() {
 		char r = '\0';
 		if(gameOver()) {
-			if(root.redPieces>0) {
+			if(board.getRedMask()!=0) {
 				r='R';
 			}else {
 				r='B';
@@ -55,63 +172,14 @@ public class CheckersLogic {
 	 * @return Whether the user can move
 	 */
 	public boolean userHasMove() {
-		Board board=root.nodeBoard;
-		char colorIn = root.color;
-		for(int r=0; r<8; r++){
-			for(int c=0; c<8; c++){
-				if(board.getPieces()[r][c]!=null && board.getPieces()[r][c].color==colorIn){
-					if(board.getPieces()[r][c].color=='R' || board.getPieces()[r][c].king){
-						byte[] tryMove = {(byte)r,(byte)c,(byte)(r-1),(byte)(c-1)};
-						byte[] tryHop = {(byte)r,(byte)c,(byte)(r-2),(byte)(c-2)};
-						byte[] delta = {(byte)-1, (byte)-1};
-						if(moveExists(board, colorIn, tryMove, tryHop, delta)) {
-							return true;
-						}
-						tryMove[3] = (byte)(c+1);
-						tryHop[3] = (byte)(c+2);
-						delta[1] = (byte)+1;
-						if(moveExists(board, colorIn, tryMove, tryHop, delta)) {
-							return true;
-						}
-					}
-					if(board.getPieces()[r][c].color=='B' || board.getPieces()[r][c].king){
-						byte[] tryMove = {(byte)r,(byte)c,(byte)(r+1),(byte)(c-1)};
-						byte[] tryHop = {(byte)r,(byte)c,(byte)(r+2),(byte)(c-2)};
-						byte[] delta = {(byte)+1, (byte)-1};
-						if(moveExists(board, colorIn, tryMove, tryHop, delta)) {
-							return true;
-						}
-						tryMove[3] = (byte)(c+1);
-						tryHop[3] = (byte)(c+2);
-						delta[1] = (byte)+1;
-						if(moveExists(board, colorIn, tryMove, tryHop, delta)) {
-							return true;
-						}
-					}
-				}
-			}
-		}
-		return false;
+		return !legalMoves.isEmpty();
 	}
 	
 	/**
-	 * Checks if a valid move or hop exists.
-	 * @param board
-	 * @param colorIn
-	 * @param tryMove
-	 * @param tryHop
-	 * @param delta
+	 * Gets the moves the side to move has. They are worked out once per position and change as moves are made.
 	 */
-	private boolean moveExists(Board board, char colorIn, byte[] tryMove, byte[] tryHop, byte[] delta) {
-		boolean exists=false;
-		try {
-			if(board.validateMove(colorIn, tryMove)){
-				exists=true;
-			}else if(board.validateMove(colorIn, tryHop)){
-				exists=true;
-			}
-		}catch(Exception e) { }
-		return exists;
+	public LegalMoves getLegalMoves() {
+		return legalMoves;
 	}
 	
 	/**
@@ -124,23 +192,19 @@ public class CheckersLogic {
 	public boolean acceptMove(byte[] move, boolean hasMove) throws Exception {
 		boolean validMove=false;
 		if(!hasMove) {
-			root=new Node(root, move);
+			stopPondering(Move.NONE);
+			addHistory(Move.NONE);
+			color='B';
+			legalMoves.generate(board, color);
 			validMove=true;
-		}else if(root.nodeBoard.validateMove('R', move)){
-			if(move.length==4 && Math.abs(move[0]-move[2])==1 && Math.abs(move[1]-move[3])==1) {
-				root.nodeBoard.movePiece(move);
-			} else {
-				for(int i=0; i<move.length-3; i=i+2) {
-					byte[] moveCpy = {move[i], move[i+1], move[i+2], move[i+3]};
-					root.nodeBoard.movePiece(moveCpy);
-					byte row = (byte)(move[i+2]+((move[i]-move[i+2])/2));
-					byte col = (byte)(move[i+3]+((move[i+1]-move[i+3])/2));
-					root.nodeBoard.removePiece(row, col);
-					root.blackPieces--;
-				}
-			}
-			root.nodeBoard.kingPiece(move, 'R');
-			root=new Node(root, move);
+		}else if(legalMoves.contains(move)){
+			long packed=Move.fromPath(move);
+			stopPondering(packed);
+			board.make(packed);
+			addHistory(packed);
+			color='B';
+			legalMoves.generate(board, color);
+			lastMove=move;
 			validMove=true;
 		}
 		return validMove;
@@ -151,9 +215,7 @@ public class CheckersLogic {
 	 * @return An array of bytes that describe the indexes of the positions being moved on the board {posY1, posX1, posY2, posX2, ...}
 	 */
 	public byte[] getLastMove() {
-		byte[] move;
-		move = root.move;
-		return move;
+		return lastMove;
 	}
 	
 	/**
@@ -161,528 +223,250 @@ public class CheckersLogic {
 	 * @throws Exception
 	 */
 	public void computerMove() throws Exception {
-		addChildren(root, 0, gameDepth);
-		if(root.bestChoice==null) {
-			byte[] move = new byte[0];
-			root = new Node(root, move);
-		}else {
-			root = root.bestChoice;
+		stopPondering(Move.NONE);
+		long move=ponderMove;
+		ponderMove=Move.NONE;
+		if(move==Move.NONE) {
+			move=search.search(board, color, redPieces(board), blackPieces(board), gameDepth, Long.MAX_VALUE);
 		}
+		completeMove(move);
 	}
 	
 	/**
-	 * Checks the validity of all potential moves from the parent and adds the valid ones as children
-	 * @param parent
-	 * @param colorIn
+	 * The computer calculates and completes a move, searching deeper until the time budget runs out.
+	 * The move from the deepest search that finished is played.
+	 * @param budget How long the computer may think
 	 * @throws Exception
 	 */
-	private void addChildren(Node parent, int height, int maxHeight) throws Exception {
-		Board board=parent.nodeBoard;
-		char colorIn = parent.color;
-		boolean prune=false;
-		for(int r=0; r<8; r++){
-			for(int c=0; c<8; c++){
-				if(board.getPieces()[r][c]!=null && board.getPieces()[r][c].color==colorIn){
-					if(board.getPieces()[r][c].color=='R' || board.getPieces()[r][c].king){
-						byte[] tryMove = {(byte)r,(byte)c,(byte)(r-1),(byte)(c-1)};
-						byte[] tryHop = {(byte)r,(byte)c,(byte)(r-2),(byte)(c-2)};
-						byte[] delta = {(byte)-1, (byte)-1};
-						prune=moveOrHop(board, parent, colorIn, tryMove, tryHop, delta, height+1, maxHeight);
-						if(prune) {
-							break;
-						}
-						tryMove[3] = (byte)(c+1);
-						tryHop[3] = (byte)(c+2);
-						delta[1] = (byte)+1;
-						prune=moveOrHop(board, parent, colorIn, tryMove, tryHop, delta, height+1, maxHeight);
-						if(prune) {
-							break;
-						}
-					}
-					if(board.getPieces()[r][c].color=='B' || board.getPieces()[r][c].king){
-						byte[] tryMove = {(byte)r,(byte)c,(byte)(r+1),(byte)(c-1)};
-						byte[] tryHop = {(byte)r,(byte)c,(byte)(r+2),(byte)(c-2)};
-						byte[] delta = {(byte)+1, (byte)-1};
-						prune=moveOrHop(board, parent, colorIn, tryMove, tryHop, delta, height+1, maxHeight);
-						if(prune) {
-							break;
-						}
-						tryMove[3] = (byte)(c+1);
-						tryHop[3] = (byte)(c+2);
-						delta[1] = (byte)+1;
-						prune=moveOrHop(board, parent, colorIn, tryMove, tryHop, delta, height+1, maxHeight);
-					}
-					if(prune) {
-						break;
-					}
-				}
-			}
-			if(prune) {
-				break;
-			}
-		}
+	public void computerMove(Duration budget) throws Exception {
+		long deadline=System.nanoTime()+budget.toNanos();
+		//a search started on the user's time is too shallow to play; it has filled the table for this one
+		stopPondering(Move.NONE);
+		ponderMove=Move.NONE;
+		completeMove(search.search(board, color, redPieces(board), blackPieces(board), ParallelSearch.MAX_DEPTH, deadline));
 	}
 	
 	/**
-	 * Checks if a valid move or hop exists and adds it to the parent.
-	 * @param board
-	 * @param parent
-	 * @param colorIn
-	 * @param tryMove
-	 * @param tryHop
-	 * @param delta
-	 * @throws Exception
+	 * Stops a computerMove running on another thread. The computer plays the best move it has fully searched.
 	 */
-	private boolean moveOrHop(Board board, Node parent, char colorIn, byte[] tryMove, byte[] tryHop, byte[] delta, int height, int maxHeight) throws Exception{
-		if(board.validateMove(colorIn, tryMove)){
-			addValidMoveNode(parent, colorIn, tryMove, height, maxHeight);
-		}else if(board.validateMove(colorIn, tryHop)){
-			addValidHopNode(parent, colorIn, tryHop, height, maxHeight);
-		}
-		return pruneAlphaBeta(parent);
+	public void stopSearch() {
+		search.stop();
 	}
 	
-	private boolean pruneAlphaBeta(Node node) {
-		if(node.alpha>=node.beta) {
-			return true;
-		}
-		return false;
+	/**
+	 * Turns the computer's move ordering (hash move, captures, killer moves, history) on or off.
+	 * It is on by default; turning it off is only useful for comparing node counts.
+	 * @param on
+	 */
+	public void setMoveOrdering(boolean on) {
+		search.setMoveOrdering(on);
 	}
 	
 	/**
-	 * Checks for valid hops in all directions after one hop has been validated
-	 * @param board The board from the previous hop
-	 * @param parent The originating node
-	 * @param colorIn
-	 * @param tryHop The previous hop move to build onto
-	 * @throws Exception
+	 * Sets how many positions the computer may look at past its search depth, per iteration, to settle
+	 * pending captures before judging a position
+	 * @param nodes The budget, or 0 to judge positions at the search depth as they stand
 	 */
-	private void addNthHop(Board board, Node parent, char colorIn, byte[] tryHop, int height, int maxHeight) throws Exception {
-		int thLen = tryHop.length;
-		byte r=tryHop[thLen-2];
-		byte c=tryHop[thLen-1];
-		byte[] shortHop=new byte[4];
-		shortHop[0]=r;
-		shortHop[1]=c;
-		if(board.getPieces()[r][c].color=='R' || board.getPieces()[r][c].king){
-			shortHop[2]=(byte)(r-2);
-			shortHop[3]=(byte)(c-2);
-			nthHop(board, parent, colorIn, tryHop, shortHop, height, maxHeight);
-			shortHop[3]=(byte)(c+2);
-			nthHop(board, parent, colorIn, tryHop, shortHop, height, maxHeight);
-		}
-		if(board.getPieces()[r][c].color=='B' || board.getPieces()[r][c].king){
-			shortHop[2]=(byte)(r+2);
-			shortHop[3]=(byte)(c-2);
-			nthHop(board, parent, colorIn, tryHop, shortHop, height, maxHeight);
-			shortHop[3]=(byte)(c+2);
-			nthHop(board, parent, colorIn, tryHop, shortHop, height, maxHeight);
-		}
+	public void setQuiescenceBudget(long nodes) {
+		search.setQuiescenceBudget(nodes);
 	}
 	
 	/**
-	 * Validate multi-hop and add child to parent, if valid
-	 * @param board
-	 * @param parent
-	 * @param colorIn
-	 * @param tryHop
-	 * @param shortHop
-	 * @throws Exception
+	 * Gives the computer an endgame tablebase. Once few enough pieces are left, positions are looked up in it
+	 * instead of being searched.
+	 * @param tablebase The tablebase, which may be shared between games, or null for none
 	 */
-	private void nthHop(Board board, Node parent, char colorIn, byte[] tryHop, byte[] shortHop, int height, int maxHeight) throws Exception {
-		if(board.validateMove(colorIn, shortHop)){
-			int thLen=tryHop.length;
-			byte[] newHop = new byte[thLen+2];
-			for(int i=0; i<thLen; i++) {
-				newHop[i]=tryHop[i];
-			}
-			newHop[thLen]=shortHop[2];
-			newHop[thLen+1]=shortHop[3];
-			addValidHopNode(parent, colorIn, newHop, height, maxHeight);
-		}
+	public void setTablebase(Tablebase tablebase) {
+		search.setTablebase(tablebase);
 	}
 	
 	/**
-	 * Adds a valid child (move) to the parent
-	 * @param parent
-	 * @param colorIn
-	 * @param tryMove
-	 * @throws Exception
+	 * Sets the weights the computer judges positions by. Searches already in the transposition table were judged
+	 * with the old weights, so change them before the game starts.
+	 * @param evaluation See Evaluation.load
 	 */
-	private void addValidMoveNode(Node parent, char colorIn, byte[] tryMove, int height, int maxHeight) throws Exception{
-		Node tempNode=new Node(parent, tryMove);
-		if(tempNode.nodeBoard.movePiece(tryMove)){
-			tempNode.nodeBoard.kingPiece(tryMove, colorIn);
-			//parent.children.add(tempNode);
-			//alpha/beta
-			if(height==maxHeight) {
-				tempNode.evaluate();
-			}else {
-				//go deeper
-				addChildren(tempNode, height, maxHeight);
-			}
-			tempNode.passAlphaBeta();
-		}else{
-			throw new Exception("could not move piece");
-		}
+	public void setEvaluation(Evaluation evaluation) {
+		search.setEvaluation(evaluation);
 	}
 	
 	/**
-	 * Adds a valid child (hop) to the parent and recursively checks for nth hops from the new position
-	 * @param parent
-	 * @param colorIn
-	 * @param tryMove
-	 * @throws Exception
+	 * Gets the number of positions the computer visited during its last move
 	 */
-	private void addValidHopNode(Node parent, char colorIn, byte[] tryHop, int height, int maxHeight) throws Exception{
-		Node tempNode=new Node(parent, tryHop);
-		for(int i=0; i<=tryHop.length-4; i+=2) {
-			if(tempNode.nodeBoard.movePiece(tryHop[i], tryHop[i+1], tryHop[i+2], tryHop[i+3])){
-				int vDelta=(tryHop[i+2]-tryHop[i])/2;
-				int hDelta=(tryHop[i+3]-tryHop[i+1])/2;
-				tempNode.nodeBoard.removePiece((byte)(tryHop[i]+vDelta), (byte)(tryHop[i+1]+hDelta));
-				if(colorIn=='R'){
-					tempNode.blackPieces--;
-				}else{
-					tempNode.redPieces--;
-				}
-			} else {
-				throw new Exception("could not move piece");
-			}
-		}
-		boolean king=tempNode.nodeBoard.kingPiece(tryHop, colorIn);
-		//parent.children.add(tempNode);
-		if(height==maxHeight) {
-			tempNode.evaluate();
-			tempNode.passAlphaBeta();
-		}else{
-			//go deeper
-			if(tempNode.redPieces>0&&tempNode.blackPieces>0) {
-				addChildren(tempNode, height, maxHeight);
-			}else {
-				tempNode.evaluate();
-			}
-			//pass up alpha-beta
-			tempNode.passAlphaBeta();
-		}
-		addNthHop(tempNode.nodeBoard, parent, colorIn, tryHop, height, maxHeight);
-	}
-		
-	/**
-	 * Nodes contain a given move and the meta data around it, including the move sequence (parent and children). 
-	 * 
-	 * @author Justin Gaudet
-	 *
-	 */
-	private class Node{
-		public Board nodeBoard;
-		public ArrayList<Node> children;
-		public Node parent;
-		public byte[] move;
-		public char color;
-		public byte redPieces;
-		public byte blackPieces;
-		public Node bestChoice;
-		public byte value;
-		public byte alpha;
-		public byte beta;
-		public byte depth;
-		
-		public Node(){
-			depth=0;
-			nodeBoard=new Board();
-			redPieces=12;
-			blackPieces=12;
-			children=new ArrayList<Node>();
-			alpha=Byte.MIN_VALUE;
-			beta=Byte.MAX_VALUE;
-			color='R';
-			value= color=='R' ? Byte.MAX_VALUE : Byte.MIN_VALUE;
+	public long getSearchNodes() {
+		return search.getNodes();
+	}
+	
+	/**
+	 * Gets a snapshot of what the computer's last search did: nodes, cutoffs, transposition table hits, depths,
+	 * branching factor and time per iteration
+	 */
+	public SearchStats getSearchStats() {
+		return search.getStats();
+	}
+	
+	/**
+	 * Stops any threads the computer searches with. Call it when the game is finished.
+	 */
+	public void shutdown() {
+		stopPondering(Move.NONE);
+		if(ponderer!=null) {
+			ponderer.shutdownNow();
 		}
-		
-		public Node(Node parentIn, byte[] moveIn){
-			depth=(byte)(parentIn.depth+1);
-			move=new byte[moveIn.length];
-			for(int i=0; i<move.length; i++){
-				move[i]=moveIn[i];
-			}
-			parent=parentIn;
-			redPieces=parentIn.redPieces;
-			blackPieces=parentIn.blackPieces;
-			nodeBoard=new Board(parentIn.nodeBoard);
-			children=new ArrayList<Node>();
-			alpha=parentIn.alpha;
-			beta=parentIn.beta;
-			color = parentIn.color=='R' ? 'B' : 'R';
-			value= color=='R' ? Byte.MAX_VALUE : Byte.MIN_VALUE;
+		search.shutdown();
+	}
+	
+	/**
+	 * Lets the computer think on the user's time. After each of its moves it searches on a background thread
+	 * while the user decides, until the user moves.
+	 * <p>
+	 * It searches the reply the transposition table expects the user to play, and if the user plays it and the
+	 * search finished, computerMove plays the result straight away. Otherwise, or with allReplies, it searches
+	 * the user's position one ply deeper, which covers every reply; the next search then starts from a warm table.
+	 * @param on
+	 * @param allReplies Whether to search every reply rather than the expected one
+	 */
+	public void setPondering(boolean on, boolean allReplies) {
+		pondering=on;
+		ponderAllReplies=allReplies;
+		if(!on) {
+			stopPondering(Move.NONE);
 		}
-		
-		public void evaluate() {
-			byte eval;
-			if(blackPieces==0) {
-				eval=Byte.MIN_VALUE+1;
-			}else if(redPieces==0) {
-				eval=Byte.MAX_VALUE-1;
-			}else{
-				eval = (byte)(blackPieces-redPieces);
-			}
-			value=eval;
-			if(color=='R') {
-				beta=eval;
-			}else{
-				alpha=eval;
-			}
+	}
+	
+	/**
+	 * Gets the number of times the user played the reply the computer was thinking about, and its search had finished
+	 */
+	public long getPonderHits() {
+		return ponderHits;
+	}
+	
+	/**
+	 * Gets the position the game was started from, or last set up
+	 */
+	public Board getStartBoard() {
+		return new Board(startBoard);
+	}
+	
+	public char getStartColor() {
+		return startColor;
+	}
+	
+	/**
+	 * Gets the packed moves (see Move) played since the start position, by both sides. A pass is Move.NONE.
+	 */
+	public long[] getMoveHistory() {
+		return Arrays.copyOf(history, historyLength);
+	}
+	
+	private void startHistory() {
+		startBoard = new Board(board);
+		startColor = color;
+		historyLength = 0;
+	}
+	
+	private void addHistory(long move) {
+		if(historyLength==history.length) {
+			history = Arrays.copyOf(history, history.length*2);
 		}
-		
-		public void passAlphaBeta(){
-			boolean testbool = false;
-			if(parent.color=='R'){
-				if(parent.beta>value){
-					parent.beta=value;
-					parent.value=alpha;
-					parent.bestChoice=this;
-					testbool=true;
-				}else if(parent.value>value) {
-					parent.value=value;
-					parent.bestChoice=this;
-					testbool=true;
-				}
-			}else{
-				if(parent.alpha<value){
-					parent.alpha=value;
-					parent.value=beta;
-					parent.bestChoice=this;
-					testbool=true;
-				}else if(parent.value<value) {
-					parent.value=value;
-					parent.bestChoice=this;
-					testbool=true;
-				}
-			}
-			/*if(testbool) {
-				System.out.println("pass A/B :\nnode\n"+this+"\nparent\n"+parent+"\n");
-			}else {
-				System.out.println("no pass A/B :\nnode\n"+this+"\nparent\n"+parent+"\n");
-			}*/
+		history[historyLength++] = move;
+	}
+	
+	private static byte redPieces(Board position) {
+		return (byte)Integer.bitCount(position.getRedMask());
+	}
+	
+	private static byte blackPieces(Board position) {
+		return (byte)Integer.bitCount(position.getBlackMask());
+	}
+	
+	private void completeMove(long move) {
+		lastMove=Move.toPath(move, board.getRedMask()|board.getBlackMask());
+		if(move!=Move.NONE) {
+			board.make(move);
 		}
-		
-		public String toString(){
-			String str="Node "+color+depth+" ";
-			str+="Value "+value+" ";
-			str+="Alpha "+alpha+" Beta "+beta;
-			str+=" with move "+Arrays.toString(move);
-			return str;
+		addHistory(move);
+		color='R';
+		legalMoves.generate(board, color);
+		if(pondering && !gameOver()) {
+			startPondering(move);
 		}
 	}
 	
-	public void debugSimpleOptTest() {
-		Board board = root.nodeBoard;
-		int red=1;
-		int black=3;
-		root.redPieces=1;
-		root.blackPieces=3;
-		for(int r=0; r<8; r++){
-			for(int c=0; c<8; c++){
-				if(board.getPieces()[r][c]!=null){
-					if(board.getPieces()[r][c].color=='R'&& red<12){
-						red++;
-						board.removePiece((byte)r, (byte)c);
-					}else if(board.getPieces()[r][c].color=='B'&& black<12){
-						black++;
-						board.removePiece((byte)r, (byte)c);
-					}
-				}
-			}
+	private void startPondering(long played) {
+		if(ponderer==null) {
+			ponderer=Executors.newSingleThreadExecutor(r -> {
+				Thread t=new Thread(r, "checkers-ponder");
+				t.setDaemon(true);
+				return t;
+			});
 		}
-		byte[] move = {7, 7, 5, 7};
-		board.movePiece(move);
-		byte[] move1 = {2, 2, 1, 7};
-		board.movePiece(move1);
+		ponderReply = ponderAllReplies ? Move.NONE : expectedReply(played);
+		//the search works on its own copy, since the user's move changes the board
+		Board position=new Board(board);
+		char side;
+		int depth;
+		if(ponderReply!=Move.NONE) {
+			position.make(ponderReply);
+			side='B';
+			depth=gameDepth;
+		}else {
+			side='R';
+			depth=Math.min(gameDepth+1, ParallelSearch.MAX_DEPTH);
+		}
+		byte red=redPieces(position);
+		byte black=blackPieces(position);
+		ponder=ponderer.submit(() -> search.search(position, side, red, black, depth, Long.MAX_VALUE));
 	}
 	
-	public void debugTestKingBlack() {
-		Board board = root.nodeBoard;
-		byte row=4;
-		byte col=6;
-		byte rowFr = 6;
-		byte colFr = 0;
-		byte[] move = {rowFr, colFr, row, col};
-		board.movePiece(move);
-		rowFr = 7;
-		colFr = 1;
-		col = 4;
-		move[0] = rowFr;
-		move[1] = colFr;
-		move[3] = col;
-		board.movePiece(move);
-		rowFr = 1;
-		row = 6;
-		col = 0;
-		move[0] = rowFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
-	}
-
-	public void debugTestKingRed() {
-		Board board = root.nodeBoard;
-		byte row=0;
-		byte col=4;
-		board.removePiece(row, col);
-		row = 2;
-		col = 6;
-		board.removePiece(row, col);
-		row = 2;
-		col = 2;
-		board.removePiece(row, col);
-		byte rowFr = 5;
-		byte colFr = 1;
-		byte[] move = {rowFr, colFr, row, col};
-		board.movePiece(move);
-		colFr = 3;
-		row = 3;
-		col = 1;
-		move[1] = colFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
-		colFr = 5;
-		col = 3;
-		move[1] = colFr;
-		move[3] = col;
-		board.movePiece(move);
-		colFr = 7;
-		row = 4;
-		col = 2;
-		move[1] = colFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
-	}
-		
-	public void debugTestDoubleHopRed() {
-		Board board = root.nodeBoard;
-		byte row=0;
-		byte col=2;
-		board.removePiece(row, col);
-		row = 2;
-		board.removePiece(row, col);
-		row = 0;
-		col = 0;
-		board.removePiece(row, col);
-		byte rowFr = 2;
-		byte colFr = 4;
-		row = 3;
-		col = 1;
-		byte[] move = {rowFr, colFr, row, col};
-		board.movePiece(move);
-		rowFr = 5;
-		colFr = 1;
-		row = 4;
-		col = 0;
-		move[0] = rowFr;
-		move[1] = colFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
-		rowFr = 5;
-		colFr = 7;
-		row = 4;
-		col = 6;
-		move[0] = rowFr;
-		move[1] = colFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
-		rowFr = 0;
-		colFr = 6;
-		row = 3;
-		col = 5;
-		move[0] = rowFr;
-		move[1] = colFr;
-		move[2] = row;
-		move[3] = col;
-		board.movePiece(move);
+	/**
+	 * Gets the best reply to the computer's move found by its search: the next move of its principal variation,
+	 * or else the table's move for the position, if the table still has it
+	 * @param played The computer's move
+	 */
+	private long expectedReply(long played) {
+		long reply=Move.NONE;
+		long[] line=search.getPrincipalVariation();
+		long[] entry=new long[2];
+		if(line.length>1 && line[0]==played) {
+			reply=line[1];
+		}else if(table.probe(board.getHash(), entry)) {
+			reply=entry[0];
+		}
+		//a hash collision could give a move from another position
+		return legalMoves.contains(reply) ? reply : Move.NONE;
 	}
 	
-	public void debugTestDoubleHopBlack() {
-		Board board = root.nodeBoard;
-		byte row=7;
-		byte col=5;
-		board.removePiece(row, col);
-		byte rowFr = 2;
-		byte colFr = 4;
-		row = 3;
-		col = 5;
-		byte[] move = {rowFr, colFr, row, col};
-		board.movePiece(move);
-	}
-
-	public void debugRandomLastMove() {
-
-		Board board = root.nodeBoard;
-		int red=8;
-		int black=10;
-		root.redPieces=8;
-		root.blackPieces=10;
-		for(int r=0; r<8; r++){
-			for(int c=0; c<8; c++){
-				if(board.getPieces()[r][c]!=null){
-					if(board.getPieces()[r][c].color=='R'&& red>0){
-						red--;
-					}else if(board.getPieces()[r][c].color=='R'){
-						board.removePiece((byte)r, (byte)c);
-					}else if(board.getPieces()[r][c].color=='B'&& black<12){
-						black++;
-						board.removePiece((byte)r, (byte)c);
-					}
-				}
+	/**
+	 * Stops the background search, waiting for its thread to let go of the search
+	 * @param played The user's move, which keeps the search's result if it was the pondered reply and it finished
+	 */
+	private void stopPondering(long played) {
+		if(ponder==null) {
+			return;
+		}
+		//a search that has not started yet clears the stop, so it is asked again until it finishes
+		while(!ponder.isDone()) {
+			search.stop();
+			try {
+				ponder.get(1, TimeUnit.MILLISECONDS);
+			}catch(TimeoutException | ExecutionException e) {
+				//checked again by the loop
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			}
 		}
-		//red
-		byte rowfr=6;
-		byte colfr=2;
-		byte rowto=4;
-		byte colto=0;
-		board.movePiece(rowfr, colfr, rowto, colto);
-		
-		rowfr=6;
-		colfr=4;
-		rowto=4;
-		colto=6;
-		board.movePiece(rowfr, colfr, rowto, colto);
-		
-		rowfr=6;
-		colfr=6;
-		rowto=3;
-		colto=7;
-		board.movePiece(rowfr, colfr, rowto, colto);
-		
-		//black
-		rowfr=2;
-		colfr=0;
-		rowto=3;
-		colto=1;
-		board.movePiece(rowfr, colfr, rowto, colto);
-
-		rowfr=1;
-		colfr=1;
-		rowto=4;
-		colto=2;
-		board.movePiece(rowfr, colfr, rowto, colto);
-
-		rowfr=0;
-		colfr=6;
-		rowto=3;
-		colto=5;
-		board.movePiece(rowfr, colfr, rowto, colto);
-		
-
-		byte[] move = {0, 4, 7, 7};
-		board.movePiece(move);
-		board.kingPiece(move, 'B');
+		try {
+			if(played!=Move.NONE && played==ponderReply && ponder.isDone() && search.getCompletedDepth()>=gameDepth) {
+				ponderMove=ponder.get();
+				ponderHits++;
+			}
+		}catch(InterruptedException | ExecutionException e) {
+			//the move is searched again
+		}
+		ponder=null;
 	}
 
 }
 
-//TODO: Add custom exceptions
\ No newline at end of file
+//TODO: Add custom exceptions
\ No newline at end of file
@@ -0,0 +1,194 @@
+package checkers.Logic;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Weights the computer judges positions by, in hundredths of a man, from black's point of view:
+ * <ul>
+ * <li>material: man and king</li>
+ * <li>piece-square tables for men and kings (manSquares, kingSquares), which cover advancement, the back rank and the
+ * centre. They have 32 values each, from the piece's own side of the board: its back rank first, left to right as
+ * it sees the board. Red's are mirrored from black's.</li>
+ * <li>mobility: for each simple move the side has more than the other</li>
+ * <li>tempo: for being the side to move</li>
+ * </ul>
+ * Material and the tables are kept up to date as moves are made (see moveDelta), like the board's hash, so judging
+ * a position only adds mobility and tempo, which are counted from the board masks at once.
+ * <p>
+ * Weights are read from a properties file with those keys; any left out keep their default.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class Evaluation {
+	private static final int[] DEFAULT_MAN_SQUARES={
+			10, 10, 10, 10,
+			0, 0, 0, 0,
+			2, 6, 6, 2,
+			4, 8, 8, 4,
+			7, 11, 11, 7,
+			11, 15, 15, 11,
+			16, 16, 16, 16,
+			0, 0, 0, 0};
+	private static final int[] DEFAULT_KING_SQUARES={
+			0, 0, 0, 0,
+			3, 3, 3, 0,
+			0, 8, 8, 3,
+			3, 12, 8, 0,
+			0, 8, 12, 3,
+			3, 8, 8, 0,
+			0, 3, 3, 3,
+			0, 0, 0, 0};
+
+	private static final int EVEN_ROWS=0x0F0F0F0F;
+	private static final int ODD_ROWS=0xF0F0F0F0;
+	private static final int LEFT_EDGE=0x01010101;
+	private static final int RIGHT_EDGE=0x80808080;
+
+	private static final Evaluation DEFAULT=new Evaluation(100, 150, 4, 6, DEFAULT_MAN_SQUARES, DEFAULT_KING_SQUARES);
+
+	private final int man;
+	private final int king;
+	private final int mobility;
+	private final int tempo;
+	//signed value of each piece type (see Zobrist) on each square, material included
+	private final int[][] values;
+
+	private Evaluation(int manIn, int kingIn, int mobilityIn, int tempoIn, int[] manSquares, int[] kingSquares) {
+		man=manIn;
+		king=kingIn;
+		mobility=mobilityIn;
+		tempo=tempoIn;
+		values=new int[4][32];
+		for(int sq=0; sq<32; sq++) {
+			values[Zobrist.BLACK_MAN][sq]=man+manSquares[sq];
+			values[Zobrist.BLACK_KING][sq]=king+kingSquares[sq];
+			values[Zobrist.RED_MAN][31-sq]=-values[Zobrist.BLACK_MAN][sq];
+			values[Zobrist.RED_KING][31-sq]=-values[Zobrist.BLACK_KING][sq];
+		}
+	}
+
+	/**
+	 * Gets the weights the computer uses unless given others
+	 */
+	public static Evaluation defaults() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Reads weights from a properties file
+	 * @param file
+	 * @return The weights, with the defaults for any the file leaves out
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a weight is not a number or a table does not have 32 of them
+	 */
+	public static Evaluation load(Path file) throws IOException {
+		Properties weights=new Properties();
+		try(Reader reader=Files.newBufferedReader(file)) {
+			weights.load(reader);
+		}
+		return new Evaluation(weight(weights, "man", DEFAULT.man), weight(weights, "king", DEFAULT.king),
+				weight(weights, "mobility", DEFAULT.mobility), weight(weights, "tempo", DEFAULT.tempo),
+				table(weights, "manSquares", DEFAULT_MAN_SQUARES), table(weights, "kingSquares", DEFAULT_KING_SQUARES));
+	}
+
+	private static int weight(Properties weights, String key, int defaultValue) {
+		String value=weights.getProperty(key);
+		return value==null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	private static int[] table(Properties weights, String key, int[] defaultTable) {
+		String value=weights.getProperty(key);
+		if(value==null) {
+			return defaultTable;
+		}
+		String[] words=value.trim().split("[\\s,]+");
+		if(words.length!=32) {
+			throw new IllegalArgumentException(key+" needs 32 values, not "+words.length);
+		}
+		int[] squares=new int[32];
+		for(int i=0; i<32; i++) {
+			squares[i]=Integer.parseInt(words[i]);
+		}
+		return squares;
+	}
+
+	public int getMan() {
+		return man;
+	}
+
+	public int getKing() {
+		return king;
+	}
+
+	/**
+	 * Adds up material and the piece-square tables for a position from scratch
+	 */
+	int score(Board board) {
+		int red=board.getRedMask();
+		int kings=board.getKingMask();
+		int occupied=red|board.getBlackMask();
+		int score=0;
+		while(occupied!=0) {
+			int sq=Integer.numberOfTrailingZeros(occupied);
+			occupied&=occupied-1;
+			score+=values[Zobrist.type((red&(1<<sq))!=0, (kings&(1<<sq))!=0)][sq];
+		}
+		return score;
+	}
+
+	/**
+	 * Gets the change in score made by a move. It is called after the move is made on the board, as Board's moveKey is.
+	 * @param kingsBefore The king mask before the move, as returned by Board.make
+	 */
+	int moveDelta(Board board, long move, int kingsBefore) {
+		int from=Move.from(move);
+		int to=Move.to(move);
+		boolean redMoved=(board.getRedMask()&(1<<to))!=0;
+		int delta=values[Zobrist.type(redMoved, (board.getKingMask()&(1<<to))!=0)][to]-
+				values[Zobrist.type(redMoved, (kingsBefore&(1<<from))!=0)][from];
+		int captured=Move.captured(move);
+		while(captured!=0) {
+			int sq=Integer.numberOfTrailingZeros(captured);
+			captured&=captured-1;
+			delta-=values[Zobrist.type(!redMoved, (kingsBefore&(1<<sq))!=0)][sq];
+		}
+		return delta;
+	}
+
+	/**
+	 * Judges a position
+	 * @param board
+	 * @param color The side to move
+	 * @param score The position's score, kept up to date with moveDelta
+	 * @return The value from black's point of view, in hundredths of a man
+	 */
+	int evaluate(Board board, char color, int score) {
+		int red=board.getRedMask();
+		int black=board.getBlackMask();
+		int kings=board.getKingMask();
+		int empty=~(red|black);
+		int moves=simpleMoves(black, kings, empty, false)-simpleMoves(red, kings, empty, true);
+		return score+mobility*moves+(color=='B' ? tempo : -tempo);
+	}
+
+	/**
+	 * Counts the simple (non-capturing) moves of one side's pieces by shifting the masks. Moving up a row takes 4
+	 * from the square, and 5 or 3 more or less depending on the row, as Board numbers the squares.
+	 * @param red Whether the pieces are red's, whose men move up
+	 */
+	private static int simpleMoves(int pieces, int kings, int empty, boolean red) {
+		int up = red ? pieces : pieces&kings;
+		int down = red ? pieces&kings : pieces;
+		return Integer.bitCount((up>>>4)&empty)+
+				Integer.bitCount(((up&EVEN_ROWS&~LEFT_EDGE)>>>5)&empty)+
+				Integer.bitCount(((up&ODD_ROWS&~RIGHT_EDGE)>>>3)&empty)+
+				Integer.bitCount((down<<4)&empty)+
+				Integer.bitCount(((down&ODD_ROWS&~RIGHT_EDGE)<<5)&empty)+
+				Integer.bitCount(((down&EVEN_ROWS&~LEFT_EDGE)<<3)&empty);
+	}
+}
@@ -0,0 +1,50 @@
+package checkers.Logic;
+
+import java.util.Arrays;
+
+/**
+ * Lookup tables for the diagonals of the 32 playable squares, numbered as in Board, built once when the class is
+ * loaded so generating and checking moves looks squares up instead of working them out from rows and columns.
+ * Directions are 0 up-left, 1 up-right, 2 down-left and 3 down-right, and a square off the board is -1.
+ *
+ * @author Justin Gaudet
+ *
+ */
+final class Geometry {
+	/** Indexed by square*4+direction: the next square along the diagonal, which is also the square a jump passes over */
+	static final int[] NEIGHBOUR=new int[128];
+	/** Indexed by square*4+direction: the square a jump lands on */
+	static final int[] LANDING=new int[128];
+	/** Indexed by from*32+to: the square a jump between the two passes over, or -1 if they are not a jump apart */
+	static final int[] JUMPED=new int[1024];
+	/** The top row, where red's men become kings */
+	static final int RED_PROMOTION=0x0000000F;
+	/** The bottom row, where black's men become kings */
+	static final int BLACK_PROMOTION=0xF0000000;
+
+	static {
+		Arrays.fill(JUMPED, -1);
+		for(int sq=0; sq<32; sq++) {
+			for(int dir=0; dir<4; dir++) {
+				int vDelta = dir<2 ? -1 : 1;
+				int hDelta = dir%2==0 ? -1 : 1;
+				NEIGHBOUR[sq<<2|dir]=Board.square(Board.row(sq)+vDelta, Board.col(sq)+hDelta);
+				LANDING[sq<<2|dir]=Board.square(Board.row(sq)+2*vDelta, Board.col(sq)+2*hDelta);
+				if(LANDING[sq<<2|dir]>=0) {
+					JUMPED[sq<<5|LANDING[sq<<2|dir]]=NEIGHBOUR[sq<<2|dir];
+				}
+			}
+		}
+	}
+
+	private Geometry() {
+	}
+
+	/**
+	 * Gets the row where a side's men become kings
+	 * @param colorIn 'R' or 'B'
+	 */
+	static int promotion(char colorIn) {
+		return colorIn=='R' ? RED_PROMOTION : BLACK_PROMOTION;
+	}
+}
@@ -0,0 +1,123 @@
+package checkers.Logic;
+
+/**
+ * The moves the side to move has in one position, generated once and kept in an open addressing hash set of packed
+ * moves, so checking a move someone typed, asking whether they can move or listing their moves takes no search or
+ * board copies. One instance can be refilled for each new position without allocating.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class LegalMoves {
+	private static final int SLOT_BITS=9;
+
+	private final long[] moves;
+	//twice as many slots as there can be moves, so lookups stay short; empty slots hold Move.NONE
+	private final long[] slots;
+	//the slots filled, to empty them again without probing
+	private final int[] used;
+	private int usedCount;
+	private int count;
+	private int occupied;
+
+	public LegalMoves() {
+		moves=new long[MoveGenerator.MAX_MOVES];
+		slots=new long[1<<SLOT_BITS];
+		used=new int[MoveGenerator.MAX_MOVES];
+	}
+
+	/**
+	 * @param board
+	 * @param color The side to move, 'R' or 'B'
+	 */
+	public LegalMoves(Board board, char color) {
+		this();
+		generate(board, color);
+	}
+
+	/**
+	 * Replaces the set with the moves of another position
+	 * @param board
+	 * @param color The side to move, 'R' or 'B'
+	 */
+	public void generate(Board board, char color) {
+		for(int i=0; i<usedCount; i++) {
+			slots[used[i]]=Move.NONE;
+		}
+		usedCount=0;
+		count=MoveGenerator.generate(board, color, moves);
+		occupied=board.getRedMask()|board.getBlackMask();
+		for(int i=0; i<count; i++) {
+			int slot=slot(moves[i]);
+			if(slots[slot]==Move.NONE) {
+				slots[slot]=moves[i];
+				used[usedCount++]=slot;
+			}
+		}
+	}
+
+	/**
+	 * Finds a move's slot: the one holding it, or the empty one it would go in
+	 */
+	private int slot(long move) {
+		int mask=(1<<SLOT_BITS)-1;
+		int i=((int)(move^(move>>>32))*0x9E3779B9)>>>(32-SLOT_BITS);
+		while(slots[i]!=Move.NONE && slots[i]!=move) {
+			i=(i+1)&mask;
+		}
+		return i;
+	}
+
+	public boolean contains(long move) {
+		return move!=Move.NONE && slots[slot(move)]==move;
+	}
+
+	/**
+	 * Checks a move given as the squares it passes through
+	 * @param path {posY1, posX1, posY2, posX2, ...}
+	 * @return Whether it is one of the moves. A multi-hop must take each piece once and land only on empty squares,
+	 * since a king may reach the same square taking the same pieces by another way.
+	 */
+	public boolean contains(byte[] path) {
+		long move=Move.fromPath(path);
+		if(!contains(move)) {
+			return false;
+		}
+		int hops=path.length/2-1;
+		if(!Move.isCapture(move)) {
+			return hops==1;
+		}
+		if(Integer.bitCount(Move.captured(move))!=hops) {
+			return false;
+		}
+		int blocked=occupied&~(1<<Move.from(move));
+		int sq=Move.from(move);
+		for(int i=2; i<path.length; i+=2) {
+			int land=Board.square(path[i], path[i+1]);
+			if(land<0 || Geometry.JUMPED[sq<<5|land]<0 || (blocked&(1<<land))!=0) {
+				return false;
+			}
+			blocked&=~(1<<Geometry.JUMPED[sq<<5|land]);
+			sq=land;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of moves, 0 if the side to move is stuck
+	 */
+	public int size() {
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return count==0;
+	}
+
+	/**
+	 * Gets a move by index, in the order MoveGenerator gives them
+	 */
+	public long get(int index) {
+		return moves[index];
+	}
+}
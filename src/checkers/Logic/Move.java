@@ -0,0 +1,108 @@
+package checkers.Logic;
+
+/**
+ * Static helpers for moves packed into a long, so they can be generated, stored and compared without allocation.
+ * Bits 0-31 hold the mask of captured squares, bits 32-36 the square moved from and bits 37-41 the square moved to.
+ * A value of 0 is never a real move and is used to mean "no move" (a pass).
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class Move {
+	public static final long NONE=0L;
+
+	public static long encode(int from, int to, int captured) {
+		return (captured&0xFFFFFFFFL)|((long)from<<32)|((long)to<<37);
+	}
+
+	public static int from(long move) {
+		return (int)(move>>>32)&31;
+	}
+
+	public static int to(long move) {
+		return (int)(move>>>37)&31;
+	}
+
+	public static int captured(long move) {
+		return (int)move;
+	}
+
+	public static boolean isCapture(long move) {
+		return (int)move!=0;
+	}
+
+	/**
+	 * Packs a move given as {posY1, posX1, posY2, posX2, ...}. The move is not validated.
+	 * @param path
+	 * @return The packed move, or NONE if the path does not describe a move
+	 */
+	public static long fromPath(byte[] path) {
+		if(path.length<4 || path.length%2!=0) {
+			return NONE;
+		}
+		int from=Board.square(path[0], path[1]);
+		int to=Board.square(path[path.length-2], path[path.length-1]);
+		if(from<0 || to<0) {
+			return NONE;
+		}
+		int captured=0;
+		for(int i=0; i<path.length-3; i+=2) {
+			int hopFrom=Board.square(path[i], path[i+1]);
+			int hopTo=Board.square(path[i+2], path[i+3]);
+			if(hopFrom>=0 && hopTo>=0 && Geometry.JUMPED[hopFrom<<5|hopTo]>=0) {
+				captured|=1<<Geometry.JUMPED[hopFrom<<5|hopTo];
+			}
+		}
+		return encode(from, to, captured);
+	}
+
+	/**
+	 * Unpacks a move into {posY1, posX1, posY2, posX2, ...}. The landing squares of a multi-hop are
+	 * recovered by searching for the hops that take exactly the captured pieces.
+	 * @param move
+	 * @param occupied The occupied squares before the move was made
+	 * @return The path of the move, or an empty array for NONE
+	 */
+	public static byte[] toPath(long move, int occupied) {
+		if(move==NONE) {
+			return new byte[0];
+		}
+		int from=from(move);
+		int captured=captured(move);
+		byte[] path=new byte[2*(Integer.bitCount(captured)+(captured==0 ? 2 : 1))];
+		path[0]=(byte)Board.row(from);
+		path[1]=(byte)Board.col(from);
+		if(captured==0) {
+			path[2]=(byte)Board.row(to(move));
+			path[3]=(byte)Board.col(to(move));
+		}else {
+			findHops(path, 2, from, to(move), captured, occupied&~(1<<from));
+		}
+		return path;
+	}
+
+	private static boolean findHops(byte[] path, int index, int sq, int to, int remaining, int occupied) {
+		if(remaining==0) {
+			return sq==to;
+		}
+		for(int dir=0; dir<4; dir++) {
+			int jumped=Geometry.NEIGHBOUR[sq<<2|dir];
+			int land=Geometry.LANDING[sq<<2|dir];
+			if(jumped>=0 && land>=0 && (remaining&(1<<jumped))!=0 && (occupied&(1<<land))==0) {
+				path[index]=(byte)Board.row(land);
+				path[index+1]=(byte)Board.col(land);
+				if(findHops(path, index+2, land, to, remaining&~(1<<jumped), occupied&~(1<<jumped))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	public static String toString(long move) {
+		if(move==NONE) {
+			return "pass";
+		}
+		return from(move)+(isCapture(move) ? "x" : "-")+to(move);
+	}
+}
@@ -0,0 +1,132 @@
+package checkers.Logic;
+
+/**
+ * Generates packed moves (see Move) straight from the board masks into a caller-supplied buffer,
+ * so generating moves during a search does not allocate.
+ * Moves are produced in board scan order: square by square, then up-left, up-right, down-left, down-right.
+ * Every prefix of a multi-hop is a move of its own, and a man that reaches the far row ends its move there.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class MoveGenerator {
+	/** Size of buffer each call to generate needs */
+	public static final int MAX_MOVES=256;
+
+	/**
+	 * Writes every move available to colorIn into buffer
+	 * @param board
+	 * @param colorIn The side to move, 'R' or 'B'
+	 * @param buffer At least MAX_MOVES long
+	 * @return The number of moves written
+	 */
+	public static int generate(Board board, char colorIn, long[] buffer) {
+		return generate(board, colorIn, buffer, false, false);
+	}
+
+	/**
+	 * Writes every capture available to colorIn into buffer, including each prefix of a multi-hop
+	 * @param board
+	 * @param colorIn The side to move, 'R' or 'B'
+	 * @param buffer At least MAX_MOVES long
+	 * @return The number of captures written
+	 */
+	public static int generateCaptures(Board board, char colorIn, long[] buffer) {
+		return generate(board, colorIn, buffer, true, false);
+	}
+
+	/**
+	 * Writes the moves colorIn has under the standard (English draughts) rules into buffer: when a capture is
+	 * possible one must be made, and a multi-hop must be taken to its end. Used to compare move counts with
+	 * published perft results; the game itself uses generate.
+	 * @param board
+	 * @param colorIn The side to move, 'R' or 'B'
+	 * @param buffer At least MAX_MOVES long
+	 * @return The number of moves written
+	 */
+	public static int generateForced(Board board, char colorIn, long[] buffer) {
+		int count=generate(board, colorIn, buffer, true, true);
+		if(count==0) {
+			count=generate(board, colorIn, buffer, false, false);
+		}
+		return count;
+	}
+
+	private static int generate(Board board, char colorIn, long[] buffer, boolean capturesOnly, boolean completeOnly) {
+		int own = colorIn=='R' ? board.getRedMask() : board.getBlackMask();
+		int opp = colorIn=='R' ? board.getBlackMask() : board.getRedMask();
+		int kings=board.getKingMask();
+		int empty=~(own|opp);
+		int promotion=Geometry.promotion(colorIn);
+		int count=0;
+		int pieces=own;
+		while(pieces!=0) {
+			int from=Integer.numberOfTrailingZeros(pieces);
+			pieces&=pieces-1;
+			boolean king=(kings&(1<<from))!=0;
+			for(int dir=firstDir(colorIn, king); dir<=lastDir(colorIn, king); dir++) {
+				int to=Geometry.NEIGHBOUR[from<<2|dir];
+				if(to<0) {
+					continue;
+				}
+				if((empty&(1<<to))!=0) {
+					if(capturesOnly) {
+						continue;
+					}
+					count=add(buffer, count, Move.encode(from, to, 0));
+				}else if((opp&(1<<to))!=0) {
+					int land=Geometry.LANDING[from<<2|dir];
+					if(land>=0 && (empty&(1<<land))!=0) {
+						count=addHops(buffer, count, colorIn, king, promotion, completeOnly, from, land, 1<<to, opp&~(1<<to), empty|(1<<from)|(1<<to));
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the hop sequence ending at sq, then every longer sequence that continues from it
+	 * @param promotion The row where the side's men become kings
+	 * @param completeOnly Only add sequences that cannot be continued
+	 */
+	private static int addHops(long[] buffer, int count, char colorIn, boolean king, int promotion, boolean completeOnly, int from, int sq, int captured, int opp, int empty) {
+		if(!king && (promotion&(1<<sq))!=0) {
+			return add(buffer, count, Move.encode(from, sq, captured));
+		}
+		int before=count;
+		if(!completeOnly) {
+			count=add(buffer, count, Move.encode(from, sq, captured));
+		}
+		empty&=~(1<<sq);
+		for(int dir=firstDir(colorIn, king); dir<=lastDir(colorIn, king); dir++) {
+			int jumped=Geometry.NEIGHBOUR[sq<<2|dir];
+			if(jumped<0 || (opp&(1<<jumped))==0) {
+				continue;
+			}
+			int land=Geometry.LANDING[sq<<2|dir];
+			if(land>=0 && (empty&(1<<land))!=0) {
+				count=addHops(buffer, count, colorIn, king, promotion, completeOnly, from, land, captured|(1<<jumped), opp&~(1<<jumped), empty|(1<<sq)|(1<<jumped));
+			}
+		}
+		if(completeOnly && count==before) {
+			count=add(buffer, count, Move.encode(from, sq, captured));
+		}
+		return count;
+	}
+
+	private static int add(long[] buffer, int count, long move) {
+		if(count<buffer.length) {
+			buffer[count++]=move;
+		}
+		return count;
+	}
+
+	private static int firstDir(char colorIn, boolean king) {
+		return (colorIn=='R' || king) ? 0 : 2;
+	}
+
+	private static int lastDir(char colorIn, boolean king) {
+		return (colorIn=='B' || king) ? 3 : 1;
+	}
+}
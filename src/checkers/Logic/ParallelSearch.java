@@ -0,0 +1,216 @@
+package checkers.Logic;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lazy SMP search: the main search runs on the calling thread while helper threads search the same position
+ * with their own Search, all sharing one transposition table. The helpers' results reach the main search through
+ * the table, and half of them work one ply ahead so they fill in entries the main search is about to need.
+ * With one thread no helpers are started and the search is the plain serial one, which is deterministic.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class ParallelSearch {
+	/** The deepest search that can be asked for */
+	public static final int MAX_DEPTH=Search.MAX_PLY-1;
+
+	private Search main;
+	private Search[] helpers;
+	private Future<?>[] running;
+	private ExecutorService pool;
+	private Search lastBest;
+
+	/**
+	 * @param table The transposition table shared by all threads
+	 * @param threads The number of threads to search with, including the calling thread
+	 */
+	public ParallelSearch(TranspositionTable table, int threads) {
+		main=new Search(table);
+		lastBest=main;
+		helpers=new Search[Math.max(0, threads-1)];
+		running=new Future<?>[helpers.length];
+		for(int i=0; i<helpers.length; i++) {
+			helpers[i]=new Search(table);
+			helpers[i].setDepthOffset(i%2==0 ? 1 : 0);
+		}
+		if(helpers.length>0) {
+			pool=Executors.newFixedThreadPool(helpers.length, r -> {
+				Thread t=new Thread(r, "checkers-search-helper");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	public int getThreads() {
+		return helpers.length+1;
+	}
+
+	/**
+	 * Finds the best move for the side to move, as Search.search does
+	 * @return The best move found, or Move.NONE if the side to move has no moves
+	 * @throws Exception if a helper thread failed
+	 */
+	public long search(Board boardIn, char colorIn, byte red, byte black, int depth, long deadline) throws Exception {
+		for(int i=0; i<helpers.length; i++) {
+			Search helper=helpers[i];
+			helper.clearStop();
+			running[i]=pool.submit(() -> helper.iterate(boardIn, colorIn, red, black, depth, deadline));
+		}
+		long move;
+		try {
+			move=main.search(boardIn, colorIn, red, black, depth, deadline);
+		}finally {
+			for(Search helper : helpers) {
+				helper.stop();
+			}
+		}
+		lastBest=main;
+		for(int i=0; i<helpers.length; i++) {
+			running[i].get();
+			//a helper that finished a deeper iteration than the main search has the better move
+			if(helpers[i].getCompletedDepth()>lastBest.getCompletedDepth()) {
+				lastBest=helpers[i];
+			}
+		}
+		return lastBest==main ? move : lastBest.getBestMove();
+	}
+
+	/**
+	 * Turns move ordering on or off in every thread
+	 */
+	public void setMoveOrdering(boolean on) {
+		main.setMoveOrdering(on);
+		for(Search helper : helpers) {
+			helper.setMoveOrdering(on);
+		}
+	}
+
+	/**
+	 * Sets how many quiescence nodes each iteration of each thread may visit
+	 * @param nodes The budget, or 0 to turn quiescence off
+	 */
+	public void setQuiescenceBudget(long nodes) {
+		main.setQuiescenceBudget(nodes);
+		for(Search helper : helpers) {
+			helper.setQuiescenceBudget(nodes);
+		}
+	}
+
+	/**
+	 * Switches every thread to another transposition table, so one ParallelSearch can search for several games
+	 * in turn. It must not be called during a search.
+	 */
+	public void setTable(TranspositionTable table) {
+		main.setTable(table);
+		for(Search helper : helpers) {
+			helper.setTable(table);
+		}
+	}
+
+	/**
+	 * Sets the number every thread tags its transposition table entries with, so a shared table can tell which
+	 * game stored them (see TranspositionTable.newOwner)
+	 */
+	public void setOwner(int owner) {
+		main.setOwner(owner);
+		for(Search helper : helpers) {
+			helper.setOwner(owner);
+		}
+	}
+
+	/**
+	 * Sets the endgame tablebase every thread looks positions up in, or null for none
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		main.setTablebase(tablebase);
+		for(Search helper : helpers) {
+			helper.setTablebase(tablebase);
+		}
+	}
+
+	/**
+	 * Sets the weights every thread judges positions by
+	 */
+	public void setEvaluation(Evaluation evaluation) {
+		main.setEvaluation(evaluation);
+		for(Search helper : helpers) {
+			helper.setEvaluation(evaluation);
+		}
+	}
+
+	/**
+	 * Gets the number of quiescence nodes visited by all threads in the last search
+	 */
+	public long getQuiescenceNodes() {
+		long nodes=main.getQuiescenceNodes();
+		for(Search helper : helpers) {
+			nodes+=helper.getQuiescenceNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Asks a running search to finish. It can be called from any thread.
+	 */
+	public void stop() {
+		main.stop();
+	}
+
+	public int getBestValue() {
+		return lastBest.getBestValue();
+	}
+
+	public int getCompletedDepth() {
+		return lastBest.getCompletedDepth();
+	}
+
+	/**
+	 * Gets the best line of play found by the thread whose move was played
+	 */
+	public long[] getPrincipalVariation() {
+		return lastBest.getPrincipalVariation();
+	}
+
+	/**
+	 * Gets a snapshot of what the last search did. The depths and iterations are those of the thread whose move
+	 * was played, and the counters are added up over every thread.
+	 */
+	public SearchStats getStats() {
+		SearchStats stats=lastBest.getStats();
+		if(lastBest!=main) {
+			stats=stats.plus(main.getStats());
+		}
+		for(Search helper : helpers) {
+			if(helper!=lastBest) {
+				stats=stats.plus(helper.getStats());
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Gets the number of nodes visited by all threads in the last search
+	 */
+	public long getNodes() {
+		long nodes=main.getNodes();
+		for(Search helper : helpers) {
+			nodes+=helper.getNodes();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Stops the helper threads. The search can still be used, but only on the calling thread.
+	 */
+	public void shutdown() {
+		if(pool!=null) {
+			pool.shutdownNow();
+		}
+		helpers=new Search[0];
+		running=new Future<?>[0];
+	}
+}
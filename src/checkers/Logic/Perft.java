@@ -0,0 +1,149 @@
+package checkers.Logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the leaves of the full move tree to a fixed depth from a position ("perft"), using the same MoveGenerator
+ * and make/unmake as the search. It measures how fast moves are generated, and the counts can be checked against
+ * known results to find move generation bugs.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class Perft {
+	private final Board board;
+	private final char color;
+	private final boolean forcedCaptures;
+	private final long[] rootMoves;
+
+	/**
+	 * @param boardIn The position to count from. It is copied.
+	 * @param colorIn The side to move
+	 * @param forcedCapturesIn Whether to use the standard rules (see MoveGenerator.generateForced) rather than
+	 * the game's rules, where captures are optional and every part of a multi-hop is a move
+	 */
+	public Perft(Board boardIn, char colorIn, boolean forcedCapturesIn) {
+		board=new Board(boardIn);
+		color=colorIn;
+		forcedCaptures=forcedCapturesIn;
+		long[] buffer=new long[MoveGenerator.MAX_MOVES];
+		int count=generate(board, color, buffer);
+		rootMoves=new long[count];
+		System.arraycopy(buffer, 0, rootMoves, 0, count);
+	}
+
+	/**
+	 * @param red The red piece mask
+	 * @param black The black piece mask
+	 * @param kings The king mask
+	 * @param colorIn The side to move
+	 * @param forcedCapturesIn See Perft(Board, char, boolean)
+	 */
+	public Perft(int red, int black, int kings, char colorIn, boolean forcedCapturesIn) {
+		this(new Board(red, black, kings), colorIn, forcedCapturesIn);
+	}
+
+	/**
+	 * Gets the moves available in the position, in the order divide counts them
+	 */
+	public long[] getRootMoves() {
+		return rootMoves.clone();
+	}
+
+	/**
+	 * Counts the leaves at the given depth
+	 * @param depth
+	 * @param threads The number of threads to split the root moves between
+	 * @return The number of leaves
+	 * @throws Exception if a counting thread failed
+	 */
+	public long count(int depth, int threads) throws Exception {
+		if(depth<=1) {
+			return depth==1 ? rootMoves.length : 1;
+		}
+		long total=0;
+		for(long nodes : divide(depth, threads)) {
+			total+=nodes;
+		}
+		return total;
+	}
+
+	/**
+	 * Counts the leaves at the given depth below each root move
+	 * @param depth At least 1
+	 * @param threads The number of threads to split the root moves between
+	 * @return The count for each move of getRootMoves, in the same order
+	 * @throws Exception if a counting thread failed
+	 */
+	public long[] divide(int depth, int threads) throws Exception {
+		long[] counts=new long[rootMoves.length];
+		if(threads<=1) {
+			Counter counter=new Counter(board, depth);
+			for(int i=0; i<rootMoves.length; i++) {
+				counts[i]=counter.countMove(rootMoves[i], depth);
+			}
+			return counts;
+		}
+		ExecutorService pool=Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> results=new ArrayList<Future<Long>>();
+			for(long move : rootMoves) {
+				results.add(pool.submit(() -> new Counter(board, depth).countMove(move, depth)));
+			}
+			for(int i=0; i<counts.length; i++) {
+				counts[i]=results.get(i).get();
+			}
+		}finally {
+			pool.shutdownNow();
+		}
+		return counts;
+	}
+
+	private int generate(Board boardIn, char colorIn, long[] buffer) {
+		return forcedCaptures ? MoveGenerator.generateForced(boardIn, colorIn, buffer) : MoveGenerator.generate(boardIn, colorIn, buffer);
+	}
+
+	/**
+	 * One thread's copy of the position, with a move buffer for each ply
+	 */
+	private class Counter {
+		private final Board position;
+		private final long[][] moves;
+
+		Counter(Board boardIn, int depth) {
+			position=new Board(boardIn);
+			moves=new long[depth][MoveGenerator.MAX_MOVES];
+		}
+
+		long countMove(long move, int depth) {
+			int kingsBefore=position.make(move);
+			long nodes=count(color=='R' ? 'B' : 'R', depth-1);
+			position.unmake(move, kingsBefore);
+			return nodes;
+		}
+
+		private long count(char colorIn, int depth) {
+			if(depth==0) {
+				return 1;
+			}
+			long[] buffer=moves[depth];
+			int count=generate(position, colorIn, buffer);
+			if(depth==1) {
+				//the leaves do not need to be made
+				return count;
+			}
+			char other = colorIn=='R' ? 'B' : 'R';
+			long nodes=0;
+			for(int i=0; i<count; i++) {
+				int kingsBefore=position.make(buffer[i]);
+				nodes+=count(other, depth-1);
+				position.unmake(buffer[i], kingsBefore);
+			}
+			return nodes;
+		}
+	}
+}
@@ -1,17 +1,53 @@
-
 package checkers.Logic;
 
-public class Piece {
-	public boolean king;
-	public char color;
-	public Piece(char cIn){
+/**
+ * A kind of piece: a red or black man or king. There are only the four constants, which cannot change, so they are
+ * shared by every board and thread and nothing is allocated to describe a piece.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public final class Piece {
+	public static final Piece RED_MAN=new Piece('R', false);
+	public static final Piece RED_KING=new Piece('R', true);
+	public static final Piece BLACK_MAN=new Piece('B', false);
+	public static final Piece BLACK_KING=new Piece('B', true);
+
+	private final char color;
+	private final boolean king;
+
+	private Piece(char cIn, boolean kingIn){
 		color=cIn;
-		king=false;
+		king=kingIn;
 	}
-	public Piece(Piece pIn){
-		color=pIn.color;
-		king=false;
+
+	/**
+	 * Gets the piece of a color and kind
+	 * @param cIn 'R' or 'B'
+	 * @param kingIn
+	 */
+	public static Piece of(char cIn, boolean kingIn){
+		if(cIn=='R'){
+			return kingIn ? RED_KING : RED_MAN;
+		}
+		return kingIn ? BLACK_KING : BLACK_MAN;
+	}
+
+	public char getColor(){
+		return color;
 	}
+
+	public boolean isKing(){
+		return king;
+	}
+
+	/**
+	 * Gets the same color's king, which a man becomes on the far row
+	 */
+	public Piece crowned(){
+		return of(color, true);
+	}
+
 	public String toString(){
 		String str=""+color;
 		str+= king ? "K" : " ";
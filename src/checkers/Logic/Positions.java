@@ -0,0 +1,105 @@
+package checkers.Logic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Named positions in checkers FEN, read once from the positions.txt resource next to this class: the benchmarks'
+ * positions and ones for trying out the rules. Each line is a name and a position, and lines starting with # are
+ * comments. Other files in the same format can be read with load.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public final class Positions {
+	private static final Map<String, String> SUITE=loadSuite();
+
+	private Positions() {
+	}
+
+	private static Map<String, String> loadSuite() {
+		try(InputStream in=Positions.class.getResourceAsStream("positions.txt")) {
+			if(in==null) {
+				throw new IllegalStateException("positions.txt is missing");
+			}
+			return load(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+		}catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads named positions, checking each one
+	 * @param in
+	 * @return The positions' FEN strings by name, in the order they were read
+	 * @throws IOException if the positions cannot be read, or a line is not a name and a position
+	 */
+	public static Map<String, String> load(BufferedReader in) throws IOException {
+		Map<String, String> positions=new LinkedHashMap<String, String>();
+		String line;
+		int number=0;
+		while((line=in.readLine())!=null) {
+			number++;
+			line=line.trim();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words=line.split("\\s+", 2);
+			try {
+				if(words.length<2) {
+					throw new IllegalArgumentException("no position for "+words[0]);
+				}
+				Board.fromFen(words[1]);
+			}catch(IllegalArgumentException e) {
+				throw new IOException("line "+number+": "+e.getMessage());
+			}
+			positions.put(words[0], words[1]);
+		}
+		return Collections.unmodifiableMap(positions);
+	}
+
+	/**
+	 * Gets the names of the positions, in the order the file lists them
+	 */
+	public static Iterable<String> names() {
+		return SUITE.keySet();
+	}
+
+	/**
+	 * Gets a position's FEN string
+	 * @param name
+	 * @throws IllegalArgumentException if there is no such position
+	 */
+	public static String fen(String name) {
+		String fen=SUITE.get(name);
+		if(fen==null) {
+			throw new IllegalArgumentException("unknown position "+name);
+		}
+		return fen;
+	}
+
+	/**
+	 * Gets a new board holding a position
+	 * @param name
+	 * @throws IllegalArgumentException if there is no such position
+	 */
+	public static Board board(String name) {
+		return Board.fromFen(fen(name));
+	}
+
+	/**
+	 * Gets the side to move in a position
+	 * @param name
+	 * @throws IllegalArgumentException if there is no such position
+	 */
+	public static char color(String name) {
+		return Board.fenColor(fen(name));
+	}
+}
@@ -0,0 +1,813 @@
+package checkers.Logic;
+
+import java.util.Arrays;
+
+/**
+ * Alpha-beta search over a single mutable position. Moves are made and taken back with make/unmake,
+ * and everything a ply needs (its move buffer and undo data) lives in fixed-size arrays indexed by ply,
+ * so a search uses the same memory no matter how deep it goes.
+ * Values are negamax: each node's value is from the point of view of the side to move there, in hundredths of a man
+ * (see Evaluation).
+ *
+ * @author Justin Gaudet
+ *
+ */
+class Search {
+	/** Deepest ply the stacks can hold */
+	static final int MAX_PLY=128;
+	/** Quiescence nodes each iteration may visit unless set otherwise */
+	static final long DEFAULT_QUIESCENCE_BUDGET=1<<24;
+	/** Value of winning at the root. A win n plies away is worth WIN-n, so shorter wins are preferred. */
+	static final int WIN=30000;
+	/** Value of a tablebase win with no distance to go, at the root */
+	static final int TABLEBASE_WIN=20000;
+	/** Values at least this far from 0 are won or lost, not judged, and depend on the ply they are found at */
+	static final int DECIDED=TABLEBASE_WIN-1000;
+	/** Half the width of the window each iteration first searches around the last one's value */
+	static final int ASPIRATION_WINDOW=50;
+	private static final int INFINITY=WIN+1;
+	/**
+	 * Whether beta cutoffs are counted for SearchStats. Setting the checkers.searchCounters system property to false
+	 * turns them off, and as a constant the JIT then compiles the counting out.
+	 */
+	static final boolean COUNTERS=!"false".equals(System.getProperty("checkers.searchCounters"));
+
+	private Board board;
+	private char color;
+	private byte redPieces;
+	private byte blackPieces;
+	private int ply;
+	private long[][] moves;
+	private int[] undoKings;
+	private Evaluation evaluation;
+	//material and piece-square score of the search position, and its value before each ply's move
+	private int score;
+	private int[] undoScores;
+	private long bestMove;
+	private int bestValue;
+	private int completedDepth;
+	private long iterationMove;
+	private TranspositionTable table;
+	private long[] entry;
+	private long deadline;
+	private volatile boolean stopped;
+	private long nodes;
+	private int depthOffset;
+	private boolean ordering;
+	private long quiescenceBudget;
+	private long quiescenceNodes;
+	private long iterationQuiescenceNodes;
+	private long quiescenceBudgetHits;
+	private int selectiveDepth;
+	private Tablebase tablebase;
+	private long tablebaseHits;
+	private int owner;
+	private long tableProbes;
+	private long tableHits;
+	private long tableSharedHits;
+	private long betaCutoffs;
+	private long firstMoveCutoffs;
+	private int iterations;
+	private long[] iterationNodes;
+	private long[] iterationNanos;
+	private int[][] scores;
+	private long[][] killers;
+	//indexed by side (black +1024), from square *32 and to square
+	private int[] history;
+	//the best line found below each ply, and its end
+	private long[][] pv;
+	private int[] pvLength;
+	//the last search's principal variation, and the hash of each position along it
+	private long[] lastPv;
+	private int lastPvLength;
+	private long[] lastPvKeys;
+	//the part of the last principal variation still ahead of this search, and how far it has been followed
+	private long[] pvHint;
+	private int pvHintLength;
+	private int pvFollowed;
+
+	private static final int HASH_SCORE=1<<30;
+	private static final int CAPTURE_SCORE=1<<24;
+	private static final int KILLER_SCORE=1<<22;
+	private static final int HISTORY_MAX=KILLER_SCORE-1;
+
+	/**
+	 * @param tableIn The transposition table to read and fill. It keeps its contents between searches.
+	 */
+	public Search(TranspositionTable tableIn) {
+		table=tableIn;
+		board=new Board();
+		moves=new long[MAX_PLY][MoveGenerator.MAX_MOVES];
+		undoKings=new int[MAX_PLY];
+		undoScores=new int[MAX_PLY];
+		evaluation=Evaluation.defaults();
+		entry=new long[2];
+		ordering=true;
+		quiescenceBudget=DEFAULT_QUIESCENCE_BUDGET;
+		scores=new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+		killers=new long[MAX_PLY][2];
+		history=new int[2048];
+		iterationNodes=new long[MAX_PLY];
+		iterationNanos=new long[MAX_PLY];
+		pv=new long[MAX_PLY][MAX_PLY];
+		pvLength=new int[MAX_PLY];
+		lastPv=new long[MAX_PLY];
+		lastPvKeys=new long[MAX_PLY];
+		pvHint=new long[MAX_PLY];
+	}
+
+	/**
+	 * Finds the best move for the side to move
+	 * @param boardIn The position to search. It is copied, not changed.
+	 * @param colorIn The side to move
+	 * @param red The number of red pieces on boardIn
+	 * @param black The number of black pieces on boardIn
+	 * @param depth The number of moves ahead to look, at most MAX_PLY-1
+	 * @return The best move found, or Move.NONE if the side to move has no moves
+	 */
+	public long search(Board boardIn, char colorIn, byte red, byte black, int depth) {
+		return search(boardIn, colorIn, red, black, depth, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the best move for the side to move by iterative deepening: searching to depth 1, 2, 3 and so on,
+	 * with each iteration trying the previous one's best move first. The search stops when the depth is reached,
+	 * the deadline passes or stop is called, and the best move of the deepest iteration that finished is returned.
+	 * The first iteration always finishes so there is a move to return.
+	 * @param boardIn The position to search. It is copied, not changed.
+	 * @param colorIn The side to move
+	 * @param red The number of red pieces on boardIn
+	 * @param black The number of black pieces on boardIn
+	 * @param depth The deepest iteration to search, at most MAX_PLY-1
+	 * @param deadlineIn The System.nanoTime() at which to stop, or Long.MAX_VALUE for no limit
+	 * @return The best move found, or Move.NONE if the side to move has no moves
+	 */
+	public long search(Board boardIn, char colorIn, byte red, byte black, int depth, long deadlineIn) {
+		stopped=false;
+		table.newSearch();
+		return iterate(boardIn, colorIn, red, black, depth, deadlineIn);
+	}
+
+	/**
+	 * Runs search without clearing an earlier call to stop, so a search that is stopped before it starts
+	 * only does its first iteration
+	 */
+	long iterate(Board boardIn, char colorIn, byte red, byte black, int depth, long deadlineIn) {
+		board=new Board(boardIn);
+		score=evaluation.score(board);
+		color=colorIn;
+		redPieces=red;
+		blackPieces=black;
+		ply=0;
+		deadline=deadlineIn;
+		nodes=0;
+		quiescenceNodes=0;
+		quiescenceBudgetHits=0;
+		selectiveDepth=0;
+		tablebaseHits=0;
+		tableProbes=0;
+		tableHits=0;
+		tableSharedHits=0;
+		betaCutoffs=0;
+		firstMoveCutoffs=0;
+		iterations=0;
+		SearchEvent searchEvent=new SearchEvent();
+		searchEvent.begin();
+		bestMove=Move.NONE;
+		bestValue=0;
+		completedDepth=0;
+		reusePrincipalVariation();
+		for(int i=0; i<history.length; i++) {
+			//older history counts for less in the new position
+			history[i]>>=1;
+		}
+		depth=Math.max(1, Math.min(depth, MAX_PLY-1));
+		for(int d=1; d<=depth; d++) {
+			int iterationDepth=Math.min(d+depthOffset, MAX_PLY-1);
+			iterationMove=bestMove;
+			iterationQuiescenceNodes=0;
+			long iterationStart=System.nanoTime();
+			long nodesBefore=nodes;
+			long cutoffsBefore=betaCutoffs;
+			long firstMoveCutoffsBefore=firstMoveCutoffs;
+			SearchIterationEvent event=new SearchIterationEvent();
+			event.begin();
+			int value=aspirate(iterationDepth);
+			if(stopped && completedDepth>0) {
+				break;
+			}
+			bestMove=iterationMove;
+			bestValue = color=='B' ? value : -value;
+			completedDepth=iterationDepth;
+			lastPvLength=pvLength[0];
+			System.arraycopy(pv[0], 0, lastPv, 0, lastPvLength);
+			iterationNodes[iterations]=nodes-nodesBefore;
+			iterationNanos[iterations++]=System.nanoTime()-iterationStart;
+			if(event.shouldCommit()) {
+				event.depth=iterationDepth;
+				event.nodes=nodes-nodesBefore;
+				event.betaCutoffs=betaCutoffs-cutoffsBefore;
+				event.firstMoveCutoffs=firstMoveCutoffs-firstMoveCutoffsBefore;
+				event.bestMove=Move.toString(bestMove);
+				event.score=bestValue;
+				event.commit();
+			}
+			if(bestMove==Move.NONE || Math.abs(value)>=WIN-MAX_PLY) {
+				//no moves, or the game is decided within this depth
+				break;
+			}
+		}
+		table.recordProbes(tableProbes, tableHits, tableSharedHits);
+		hashPrincipalVariation();
+		if(searchEvent.shouldCommit()) {
+			SearchStats stats=getStats();
+			searchEvent.completedDepth=stats.getCompletedDepth();
+			searchEvent.selectiveDepth=stats.getSelectiveDepth();
+			searchEvent.nodes=stats.getNodes();
+			searchEvent.quiescenceNodes=stats.getQuiescenceNodes();
+			searchEvent.betaCutoffs=stats.getBetaCutoffs();
+			searchEvent.firstMoveCutoffRate=stats.getFirstMoveCutoffRate();
+			searchEvent.tableProbes=stats.getTableProbes();
+			searchEvent.tableHits=stats.getTableHits();
+			searchEvent.branchingFactor=stats.getBranchingFactor();
+			searchEvent.commit();
+		}
+		return bestMove;
+	}
+
+	/**
+	 * Carries the last search's principal variation over to this one when this root is a position along it, as it
+	 * is when the game went the way the search expected or the same position is searched again. The rest of the
+	 * variation is tried first where the table has no move, since its entries may have been overwritten since. The
+	 * table's entries and the history scores are kept either way. The killer moves are cleared: those of the old plies order the new ones worse than none.
+	 */
+	private void reusePrincipalVariation() {
+		long rootKey=key();
+		int played=-1;
+		for(int i=0; i<=lastPvLength; i++) {
+			if(lastPvKeys[i]==rootKey) {
+				played=i;
+				break;
+			}
+		}
+		pvHintLength=played>=0 ? lastPvLength-played : 0;
+		System.arraycopy(lastPv, Math.max(0, played), pvHint, 0, pvHintLength);
+		pvFollowed=0;
+		for(int i=0; i<MAX_PLY; i++) {
+			killers[i][0]=Move.NONE;
+			killers[i][1]=Move.NONE;
+		}
+		lastPvLength=0;
+	}
+
+	/**
+	 * Hashes each position along the principal variation of the search just finished, so the next search can
+	 * find its root on it
+	 */
+	private void hashPrincipalVariation() {
+		lastPvKeys[0]=key();
+		for(int i=0; i<lastPvLength; i++) {
+			make(lastPv[i]);
+			lastPvKeys[i+1]=key();
+		}
+		for(int i=lastPvLength-1; i>=0; i--) {
+			unmake(lastPv[i]);
+		}
+	}
+
+	/**
+	 * Gets the best line of play found by the last search: its best move, the expected reply and so on
+	 */
+	public long[] getPrincipalVariation() {
+		return Arrays.copyOf(lastPv, lastPvLength);
+	}
+
+	/**
+	 * Gets a snapshot of what the last search did
+	 */
+	public SearchStats getStats() {
+		return new SearchStats(nodes, quiescenceNodes, betaCutoffs, firstMoveCutoffs, tableProbes, tableHits, tablebaseHits,
+				completedDepth, selectiveDepth, Arrays.copyOf(iterationNodes, iterations), Arrays.copyOf(iterationNanos, iterations), 1);
+	}
+
+	/**
+	 * Asks a running search to finish. It can be called from any thread.
+	 */
+	public void stop() {
+		stopped=true;
+	}
+
+	/**
+	 * Clears an earlier call to stop
+	 */
+	void clearStop() {
+		stopped=false;
+	}
+
+	/**
+	 * Makes every iteration search deeper than asked, so helper threads work ahead of the main search
+	 * @param offset The number of extra plies
+	 */
+	void setDepthOffset(int offset) {
+		depthOffset=offset;
+	}
+
+	/**
+	 * Gets the best move from the last search
+	 */
+	public long getBestMove() {
+		return bestMove;
+	}
+
+	/**
+	 * Gets the value of the best move from the last search, from black's point of view
+	 */
+	public int getBestValue() {
+		return bestValue;
+	}
+
+	/**
+	 * Gets the depth of the deepest iteration the last search finished
+	 */
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Checks the clock every 1024 nodes. Only iterations after the first can be stopped.
+	 */
+	private boolean checkStop() {
+		if((++nodes&1023)==0 && completedDepth>0 && deadline!=Long.MAX_VALUE && System.nanoTime()-deadline>0) {
+			stopped=true;
+		}
+		return stopped && completedDepth>0;
+	}
+
+	/**
+	 * Makes a move on the search position
+	 * @param move A move generated for the side to move
+	 */
+	void make(long move) {
+		undoKings[ply]=board.make(move);
+		undoScores[ply]=score;
+		score+=evaluation.moveDelta(board, move, undoKings[ply]);
+		int captures=Integer.bitCount(Move.captured(move));
+		if(color=='R') {
+			blackPieces-=captures;
+			color='B';
+		}else {
+			redPieces-=captures;
+			color='R';
+		}
+		ply++;
+	}
+
+	/**
+	 * Takes back the last move made
+	 * @param move The move passed to the matching make
+	 */
+	void unmake(long move) {
+		ply--;
+		board.unmake(move, undoKings[ply]);
+		score=undoScores[ply];
+		int captures=Integer.bitCount(Move.captured(move));
+		if(color=='R') {
+			color='B';
+			redPieces+=captures;
+		}else {
+			color='R';
+			blackPieces+=captures;
+		}
+	}
+
+	/**
+	 * Gets the hash of the search position, including the side to move
+	 */
+	long key() {
+		return color=='B' ? board.getHash()^Zobrist.SIDE : board.getHash();
+	}
+
+	/**
+	 * Searches the root to a depth, first with a narrow window around the last iteration's value, which cuts off
+	 * more, widening the window on whichever side the value falls outside it until the value is inside
+	 * @return The root's value for the side to move
+	 */
+	private int aspirate(int depth) {
+		int alpha=-INFINITY;
+		int beta=INFINITY;
+		int window=ASPIRATION_WINDOW;
+		int last = color=='B' ? bestValue : -bestValue;
+		if(completedDepth>0 && Math.abs(last)<DECIDED) {
+			alpha=last-window;
+			beta=last+window;
+		}
+		while(true) {
+			int value=alphaBeta(depth, alpha, beta);
+			if(stopped && completedDepth>0) {
+				return value;
+			}
+			if(value<=alpha && alpha>-INFINITY) {
+				alpha=Math.max(-INFINITY, value-window);
+				//every move failed, so none is known to be better than the last iteration's
+				iterationMove=bestMove;
+			}else if(value>=beta && beta<INFINITY) {
+				//the move that failed high stays first
+				beta=Math.min(INFINITY, value+window);
+			}else {
+				return value;
+			}
+			window*=2;
+		}
+	}
+
+	/**
+	 * Principal variation search: the first move is searched with the full window and the rest with a null window
+	 * around alpha, which only shows whether they are better. A move that is gets searched again with the full window.
+	 * @return The position's value for the side to move, where values at or below alpha are only an upper bound
+	 * and those at or above beta only a lower bound
+	 */
+	private int alphaBeta(int depth, int alpha, int beta) {
+		pvLength[ply]=ply;
+		if(checkStop()) {
+			return 0;
+		}
+		if(redPieces==0 || blackPieces==0) {
+			return evaluate();
+		}
+		if(tablebase!=null && ply>0 && redPieces+blackPieces<=tablebase.getMaxPieces()) {
+			int result=tablebase.probe(board.getRedMask(), board.getBlackMask(), board.getKingMask(), color);
+			if(result!=Tablebase.UNKNOWN) {
+				tablebaseHits++;
+				return tablebaseScore(result);
+			}
+		}
+		if(depth==0) {
+			return quiescenceBudget>0 ? quiesce(alpha, beta) : evaluate();
+		}
+		long key=key();
+		long hashMove=Move.NONE;
+		tableProbes++;
+		if(table.probe(key, entry)) {
+			tableHits++;
+			if(TranspositionTable.owner(entry[1])!=owner) {
+				tableSharedHits++;
+			}
+			hashMove=entry[0];
+			if(ply>0 && TranspositionTable.depth(entry[1])>=depth) {
+				int score=fromTable(TranspositionTable.score(entry[1]));
+				int bound=TranspositionTable.bound(entry[1]);
+				if(bound==TranspositionTable.EXACT) {
+					return score;
+				}else if(bound==TranspositionTable.LOWER) {
+					alpha=Math.max(alpha, score);
+				}else {
+					beta=Math.min(beta, score);
+				}
+				if(alpha>=beta) {
+					return score;
+				}
+			}
+		}
+		long[] plyMoves=moves[ply];
+		int count=MoveGenerator.generate(board, color, plyMoves);
+		if(count==0) {
+			//the side to move is stuck
+			return ply-WIN;
+		}
+		if(ply==0 && iterationMove!=Move.NONE) {
+			hashMove=iterationMove;
+		}
+		boolean onPv = ply==pvFollowed && ply<pvHintLength;
+		if(onPv && hashMove==Move.NONE) {
+			hashMove=pvHint[ply];
+		}
+		int[] plyScores=scores[ply];
+		if(ordering) {
+			scoreMoves(plyMoves, plyScores, count, hashMove);
+		}else {
+			moveToFront(plyMoves, count, hashMove);
+		}
+		int alphaIn=alpha;
+		int best=-INFINITY;
+		long bestHere=Move.NONE;
+		for(int i=0; i<count; i++) {
+			if(ordering) {
+				pickMove(plyMoves, plyScores, i, count);
+			}
+			long move=plyMoves[i];
+			if(i==0) {
+				bestHere=move;
+				if(ply==0) {
+					iterationMove=move;
+				}
+			}
+			boolean followsPv = onPv && move==pvHint[ply];
+			if(followsPv) {
+				pvFollowed++;
+			}
+			make(move);
+			int value;
+			if(i==0) {
+				value=-alphaBeta(depth-1, -beta, -alpha);
+			}else {
+				value=-alphaBeta(depth-1, -alpha-1, -alpha);
+				if(value>alpha && value<beta) {
+					value=-alphaBeta(depth-1, -beta, -alpha);
+				}
+			}
+			unmake(move);
+			if(followsPv) {
+				pvFollowed--;
+			}
+			if(stopped && completedDepth>0) {
+				//the result is unfinished, so it is neither used nor stored
+				return 0;
+			}
+			if(value>best) {
+				best=value;
+				bestHere=move;
+				if(ply==0) {
+					iterationMove=move;
+				}
+				if(value>alpha) {
+					alpha=value;
+					long[] line=pv[ply];
+					line[ply]=move;
+					int end=pvLength[ply+1];
+					System.arraycopy(pv[ply+1], ply+1, line, ply+1, end-ply-1);
+					pvLength[ply]=end;
+				}
+			}
+			if(alpha>=beta) {
+				if(COUNTERS) {
+					betaCutoffs++;
+					if(i==0) {
+						firstMoveCutoffs++;
+					}
+				}
+				if(!Move.isCapture(move)) {
+					rememberCutoff(move, depth);
+				}
+				break;
+			}
+		}
+		int bound=TranspositionTable.EXACT;
+		if(best<=alphaIn) {
+			bound=TranspositionTable.UPPER;
+		}else if(best>=beta) {
+			bound=TranspositionTable.LOWER;
+		}
+		table.store(key, depth, bound, toTable(best), bestHere, owner);
+		return best;
+	}
+
+	/**
+	 * Makes a decided value relative to the position it is stored for rather than the root, since the same
+	 * position can be reached at other plies
+	 */
+	private int toTable(int score) {
+		if(score>=DECIDED) {
+			return score+ply;
+		}else if(score<=-DECIDED) {
+			return score-ply;
+		}
+		return score;
+	}
+
+	private int fromTable(int score) {
+		if(score>=DECIDED) {
+			return score-ply;
+		}else if(score<=-DECIDED) {
+			return score+ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Scores each move for ordering: the hash move first, then captures by the number of pieces taken,
+	 * then the killer moves for this ply, then quiet moves by their history score
+	 */
+	private void scoreMoves(long[] list, int[] listScores, int count, long hashMove) {
+		long[] plyKillers=killers[ply];
+		int historyBase = color=='B' ? 1024 : 0;
+		for(int i=0; i<count; i++) {
+			long move=list[i];
+			int score;
+			if(move==hashMove) {
+				score=HASH_SCORE;
+			}else if(Move.isCapture(move)) {
+				score=CAPTURE_SCORE+Integer.bitCount(Move.captured(move));
+			}else if(move==plyKillers[0]) {
+				score=KILLER_SCORE+1;
+			}else if(move==plyKillers[1]) {
+				score=KILLER_SCORE;
+			}else {
+				score=history[historyBase+(Move.from(move)<<5)+Move.to(move)];
+			}
+			listScores[i]=score;
+		}
+	}
+
+	/**
+	 * Swaps the highest scoring of the moves from index on into index. Picking one move at a time
+	 * means no time is spent ordering moves that a cutoff skips.
+	 */
+	private static void pickMove(long[] list, int[] listScores, int index, int count) {
+		int best=index;
+		for(int i=index+1; i<count; i++) {
+			if(listScores[i]>listScores[best]) {
+				best=i;
+			}
+		}
+		if(best!=index) {
+			long move=list[best];
+			list[best]=list[index];
+			list[index]=move;
+			int score=listScores[best];
+			listScores[best]=listScores[index];
+			listScores[index]=score;
+		}
+	}
+
+	/**
+	 * Records a quiet move that caused a cutoff as a killer for this ply and in the history table
+	 */
+	private void rememberCutoff(long move, int depth) {
+		long[] plyKillers=killers[ply];
+		if(plyKillers[0]!=move) {
+			plyKillers[1]=plyKillers[0];
+			plyKillers[0]=move;
+		}
+		int index=(color=='B' ? 1024 : 0)+(Move.from(move)<<5)+Move.to(move);
+		history[index]=Math.min(history[index]+depth*depth, HISTORY_MAX);
+	}
+
+	/**
+	 * Turns move ordering on or off. With it off, only the hash move is moved to the front, which is useful for
+	 * measuring what the ordering saves.
+	 */
+	void setMoveOrdering(boolean on) {
+		ordering=on;
+	}
+
+	/**
+	 * Swaps a move to the front of the list so it is searched first
+	 * @return Whether the move was in the list
+	 */
+	private static boolean moveToFront(long[] list, int count, long move) {
+		if(move==Move.NONE) {
+			return false;
+		}
+		for(int i=0; i<count; i++) {
+			if(list[i]==move) {
+				list[i]=list[0];
+				list[0]=move;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Searches only captures past the horizon so the position is not evaluated in the middle of an exchange.
+	 * Since captures are optional, the side to move can always "stand pat" on the static evaluation instead.
+	 * Once the iteration has used its quiescence node budget, positions are evaluated as they stand.
+	 */
+	private int quiesce(int alpha, int beta) {
+		if(checkStop()) {
+			return 0;
+		}
+		quiescenceNodes++;
+		iterationQuiescenceNodes++;
+		if(ply>selectiveDepth) {
+			selectiveDepth=ply;
+		}
+		int standPat=evaluate();
+		if(redPieces==0 || blackPieces==0 || ply>=MAX_PLY-1) {
+			return standPat;
+		}
+		if(iterationQuiescenceNodes>quiescenceBudget) {
+			quiescenceBudgetHits++;
+			return standPat;
+		}
+		if(standPat>=beta) {
+			return standPat;
+		}
+		alpha=Math.max(alpha, standPat);
+		long[] plyMoves=moves[ply];
+		int count=MoveGenerator.generateCaptures(board, color, plyMoves);
+		int[] plyScores=scores[ply];
+		for(int i=0; i<count; i++) {
+			plyScores[i]=Integer.bitCount(Move.captured(plyMoves[i]));
+		}
+		int best=standPat;
+		for(int i=0; i<count; i++) {
+			pickMove(plyMoves, plyScores, i, count);
+			long move=plyMoves[i];
+			make(move);
+			int value=-quiesce(-beta, -alpha);
+			unmake(move);
+			if(stopped && completedDepth>0) {
+				return 0;
+			}
+			best=Math.max(best, value);
+			alpha=Math.max(alpha, best);
+			if(alpha>=beta) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Sets how many quiescence nodes each iteration may visit
+	 * @param nodes The budget, or 0 to evaluate at the horizon without quiescence
+	 */
+	void setQuiescenceBudget(long nodes) {
+		quiescenceBudget=nodes;
+	}
+
+	/**
+	 * Gets the number of quiescence nodes visited by the last search. They are also counted in getNodes.
+	 */
+	public long getQuiescenceNodes() {
+		return quiescenceNodes;
+	}
+
+	/**
+	 * Gets the deepest ply the last search reached, including quiescence
+	 */
+	public int getSelectiveDepth() {
+		return selectiveDepth;
+	}
+
+	/**
+	 * Gets the number of times the last search ran out of quiescence budget
+	 */
+	public long getQuiescenceBudgetHits() {
+		return quiescenceBudgetHits;
+	}
+
+	/**
+	 * Converts a tablebase result for the side to move into a value. Wins are worth less than taking the last piece
+	 * but more than any material lead, and shorter wins are worth more so the search makes progress.
+	 */
+	private int tablebaseScore(int result) {
+		if(result==Tablebase.DRAW) {
+			return 0;
+		}
+		int distance=Math.max(0, tablebase.distance(board.getRedMask(), board.getBlackMask(), board.getKingMask(), color));
+		int score=TABLEBASE_WIN-distance-ply;
+		return result==Tablebase.LOSS ? -score : score;
+	}
+
+	/**
+	 * Sets the number this search's transposition table entries are tagged with (see TranspositionTable.newOwner)
+	 */
+	void setOwner(int ownerIn) {
+		owner=ownerIn;
+	}
+
+	/**
+	 * Sets the transposition table later searches read and fill
+	 */
+	void setTable(TranspositionTable tableIn) {
+		table=tableIn;
+	}
+
+	/**
+	 * Sets the endgame tablebase to look positions up in, or null for none
+	 */
+	void setTablebase(Tablebase tablebaseIn) {
+		tablebase=tablebaseIn;
+	}
+
+	/**
+	 * Sets the weights positions are judged by
+	 */
+	void setEvaluation(Evaluation evaluationIn) {
+		evaluation=evaluationIn;
+	}
+
+	/**
+	 * Gets the number of positions the last search found in the tablebase
+	 */
+	public long getTablebaseHits() {
+		return tablebaseHits;
+	}
+
+	/**
+	 * Judges the search position for the side to move. A side with no pieces left has lost.
+	 */
+	private int evaluate() {
+		if(redPieces==0 || blackPieces==0) {
+			return (color=='B' ? blackPieces : redPieces)==0 ? ply-WIN : WIN-ply;
+		}
+		int value=evaluation.evaluate(board, color, score);
+		return color=='B' ? value : -value;
+	}
+}
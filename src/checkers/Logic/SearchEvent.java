@@ -0,0 +1,47 @@
+package checkers.Logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a whole search, from the call to search until it returns a move
+ *
+ * @author Justin Gaudet
+ *
+ */
+@Name("checkers.Search")
+@Label("Search")
+@Category({"Checkers", "Search"})
+@Description("A search for the computer's move")
+@StackTrace(false)
+class SearchEvent extends jdk.jfr.Event {
+	@Label("Completed Depth")
+	int completedDepth;
+
+	@Label("Selective Depth")
+	int selectiveDepth;
+
+	@Label("Nodes")
+	long nodes;
+
+	@Label("Quiescence Nodes")
+	long quiescenceNodes;
+
+	@Label("Beta Cutoffs")
+	long betaCutoffs;
+
+	@Label("First Move Cutoff Rate")
+	double firstMoveCutoffRate;
+
+	@Label("Table Probes")
+	long tableProbes;
+
+	@Label("Table Hits")
+	long tableHits;
+
+	@Label("Branching Factor")
+	double branchingFactor;
+}
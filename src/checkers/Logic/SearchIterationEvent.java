@@ -0,0 +1,38 @@
+package checkers.Logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one finished iteration of a search. Its duration is the iteration's time.
+ *
+ * @author Justin Gaudet
+ *
+ */
+@Name("checkers.SearchIteration")
+@Label("Search Iteration")
+@Category({"Checkers", "Search"})
+@Description("One iteration of iterative deepening")
+@StackTrace(false)
+class SearchIterationEvent extends jdk.jfr.Event {
+	@Label("Depth")
+	int depth;
+
+	@Label("Nodes")
+	long nodes;
+
+	@Label("Beta Cutoffs")
+	long betaCutoffs;
+
+	@Label("First Move Cutoffs")
+	long firstMoveCutoffs;
+
+	@Label("Best Move")
+	String bestMove;
+
+	@Label("Score")
+	int score;
+}
@@ -0,0 +1,145 @@
+package checkers.Logic;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot of what a search did, for judging how much work a difficulty level costs. The counters are kept by
+ * the search as it runs; the snapshot is only built when asked for. Beta cutoffs are only counted when the
+ * checkers.searchCounters system property is not false (see Search.COUNTERS), otherwise they read 0.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class SearchStats {
+	private final long nodes;
+	private final long quiescenceNodes;
+	private final long betaCutoffs;
+	private final long firstMoveCutoffs;
+	private final long tableProbes;
+	private final long tableHits;
+	private final long tablebaseHits;
+	private final int completedDepth;
+	private final int selectiveDepth;
+	private final long[] iterationNodes;
+	private final long[] iterationNanos;
+	private final int threads;
+
+	SearchStats(long nodesIn, long quiescenceNodesIn, long betaCutoffsIn, long firstMoveCutoffsIn, long tableProbesIn,
+			long tableHitsIn, long tablebaseHitsIn, int completedDepthIn, int selectiveDepthIn, long[] iterationNodesIn,
+			long[] iterationNanosIn, int threadsIn) {
+		nodes=nodesIn;
+		quiescenceNodes=quiescenceNodesIn;
+		betaCutoffs=betaCutoffsIn;
+		firstMoveCutoffs=firstMoveCutoffsIn;
+		tableProbes=tableProbesIn;
+		tableHits=tableHitsIn;
+		tablebaseHits=tablebaseHitsIn;
+		completedDepth=completedDepthIn;
+		selectiveDepth=selectiveDepthIn;
+		iterationNodes=iterationNodesIn;
+		iterationNanos=iterationNanosIn;
+		threads=threadsIn;
+	}
+
+	/**
+	 * Adds the counters of a search that ran alongside this one, such as a helper thread's. The depths and
+	 * iterations stay this search's.
+	 */
+	SearchStats plus(SearchStats other) {
+		return new SearchStats(nodes+other.nodes, quiescenceNodes+other.quiescenceNodes, betaCutoffs+other.betaCutoffs,
+				firstMoveCutoffs+other.firstMoveCutoffs, tableProbes+other.tableProbes, tableHits+other.tableHits,
+				tablebaseHits+other.tablebaseHits, completedDepth, Math.max(selectiveDepth, other.selectiveDepth),
+				iterationNodes, iterationNanos, threads+other.threads);
+	}
+
+	/**
+	 * Gets the number of positions visited, including quiescence nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getQuiescenceNodes() {
+		return quiescenceNodes;
+	}
+
+	/**
+	 * Gets the number of positions where a move was good enough that the rest were not searched
+	 */
+	public long getBetaCutoffs() {
+		return betaCutoffs;
+	}
+
+	/**
+	 * Gets the fraction of beta cutoffs caused by the first move searched, a measure of how good the move ordering is
+	 */
+	public double getFirstMoveCutoffRate() {
+		return betaCutoffs==0 ? 0 : (double)firstMoveCutoffs/betaCutoffs;
+	}
+
+	public long getTableProbes() {
+		return tableProbes;
+	}
+
+	public long getTableHits() {
+		return tableHits;
+	}
+
+	public long getTablebaseHits() {
+		return tablebaseHits;
+	}
+
+	/**
+	 * Gets the depth of the deepest iteration that finished
+	 */
+	public int getCompletedDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * Gets the deepest ply reached, including captures searched past the iteration depth
+	 */
+	public int getSelectiveDepth() {
+		return selectiveDepth;
+	}
+
+	/**
+	 * Gets the nodes each finished iteration visited, shallowest first
+	 */
+	public long[] getIterationNodes() {
+		return iterationNodes.clone();
+	}
+
+	/**
+	 * Gets the time each finished iteration took in nanoseconds, shallowest first
+	 */
+	public long[] getIterationNanos() {
+		return iterationNanos.clone();
+	}
+
+	/**
+	 * Gets the effective branching factor: how many times more nodes the last iteration visited than the one before
+	 * @return The ratio, or 0 with fewer than two iterations
+	 */
+	public double getBranchingFactor() {
+		int n=iterationNodes.length;
+		return n<2 || iterationNodes[n-2]==0 ? 0 : (double)iterationNodes[n-1]/iterationNodes[n-2];
+	}
+
+	/**
+	 * Gets the number of threads the counters were added up from
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	public String toString() {
+		long[] millis=new long[iterationNanos.length];
+		for(int i=0; i<millis.length; i++) {
+			millis[i]=iterationNanos[i]/1000000;
+		}
+		return String.format("nodes %d qnodes %d cutoffs %d firstcutoffrate %.3f probes %d hits %d tbhits %d depth %d seldepth %d ebf %.2f threads %d iterationms %s",
+				nodes, quiescenceNodes, betaCutoffs, getFirstMoveCutoffRate(), tableProbes, tableHits, tablebaseHits,
+				completedDepth, selectiveDepth, getBranchingFactor(), threads, Arrays.toString(millis).replace(" ", ""));
+	}
+}
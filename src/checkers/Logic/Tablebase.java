@@ -0,0 +1,228 @@
+package checkers.Logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Endgame database of won, lost and drawn positions, read through a MappedByteBuffer so every engine process
+ * using the same file shares one copy of it in the page cache. Files are built by TablebaseGenerator.
+ * <p>
+ * Positions are grouped by material: the number of red men, red kings, black men and black kings. Within a group a
+ * position's index is the combination rank of each kind of piece's squares, mixed together, once for red to move and
+ * once for black. Results are 2 bits per position (see WIN, LOSS and DRAW, from the side to move's point of view),
+ * optionally followed by a byte per position giving the number of plies to the end of the game.
+ * <p>
+ * File layout (big-endian): magic, version, the most pieces in any position, flags (bit 0: distances present) and
+ * the number of groups as ints, then for each group its four piece counts as bytes, its number of positions per side
+ * as an int and the file offsets of its results and distances as longs (-1 for no distances), then the data.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class Tablebase {
+	public static final int UNKNOWN=0;
+	public static final int WIN=1;
+	public static final int LOSS=2;
+	public static final int DRAW=3;
+
+	static final int MAGIC=0x434B5442;
+	static final int VERSION=1;
+	static final int HEADER_BYTES=20;
+	static final int GROUP_BYTES=24;
+	/** Largest number of pieces of one kind the index supports */
+	static final int MAX_KIND=12;
+
+	/** CHOOSE[n][k] is the number of ways to choose k of n squares */
+	static final long[][] CHOOSE=new long[33][MAX_KIND+1];
+
+	static {
+		for(int n=0; n<=32; n++) {
+			CHOOSE[n][0]=1;
+			for(int k=1; k<=Math.min(n, MAX_KIND); k++) {
+				CHOOSE[n][k]=CHOOSE[n-1][k-1]+(k<=n-1 ? CHOOSE[n-1][k] : 0);
+			}
+		}
+	}
+
+	private final MappedByteBuffer data;
+	private final int maxPieces;
+	private final boolean distances;
+	//indexed by groupKey
+	private final int[] positions;
+	private final long[] resultOffsets;
+	private final long[] distanceOffsets;
+
+	private Tablebase(MappedByteBuffer dataIn) throws IOException {
+		data=dataIn;
+		if(data.getInt(0)!=MAGIC || data.getInt(4)!=VERSION) {
+			throw new IOException("not a checkers tablebase file");
+		}
+		maxPieces=data.getInt(8);
+		distances=(data.getInt(12)&1)!=0;
+		int groups=data.getInt(16);
+		int keys=groupKey(MAX_KIND, MAX_KIND, MAX_KIND, MAX_KIND)+1;
+		positions=new int[keys];
+		resultOffsets=new long[keys];
+		distanceOffsets=new long[keys];
+		Arrays.fill(resultOffsets, -1);
+		for(int g=0; g<groups; g++) {
+			int at=HEADER_BYTES+g*GROUP_BYTES;
+			int key=groupKey(data.get(at), data.get(at+1), data.get(at+2), data.get(at+3));
+			positions[key]=data.getInt(at+4);
+			resultOffsets[key]=data.getLong(at+8);
+			distanceOffsets[key]=data.getLong(at+16);
+		}
+	}
+
+	/**
+	 * Maps a tablebase file into memory
+	 * @param file A file written by TablebaseGenerator
+	 * @return The tablebase
+	 * @throws IOException if the file cannot be read or is not a tablebase
+	 */
+	public static Tablebase open(Path file) throws IOException {
+		try(FileChannel channel=FileChannel.open(file, StandardOpenOption.READ)) {
+			if(channel.size()>Integer.MAX_VALUE) {
+				throw new IOException("tablebase files larger than 2GB are not supported");
+			}
+			return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Gets the most pieces (of both colors together) in any position in the tablebase
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	public boolean hasDistances() {
+		return distances;
+	}
+
+	/**
+	 * Looks up a position
+	 * @param red The red piece mask
+	 * @param black The black piece mask
+	 * @param kings The king mask
+	 * @param colorIn The side to move
+	 * @return WIN, LOSS or DRAW for the side to move, or UNKNOWN if the position is not in the tablebase
+	 */
+	public int probe(int red, int black, int kings, char colorIn) {
+		long index=index(red, black, kings, colorIn);
+		if(index<0) {
+			return UNKNOWN;
+		}
+		long offset=resultOffsets[groupKey(red, black, kings)];
+		return (data.get((int)(offset+(index>>2)))>>((index&3)<<1))&3;
+	}
+
+	/**
+	 * Gets the number of plies to the end of the game with best play, for a position probe found to be won or lost
+	 * @return The distance, or -1 if the tablebase has no distances or the position is not in it
+	 */
+	public int distance(int red, int black, int kings, char colorIn) {
+		long index=index(red, black, kings, colorIn);
+		if(!distances || index<0) {
+			return -1;
+		}
+		return data.get((int)(distanceOffsets[groupKey(red, black, kings)]+index))&0xFF;
+	}
+
+	private long index(int red, int black, int kings, char colorIn) {
+		int pieces=Integer.bitCount(red)+Integer.bitCount(black);
+		if(pieces>maxPieces || red==0 || black==0) {
+			return -1;
+		}
+		int key=groupKey(red, black, kings);
+		if(resultOffsets[key]<0) {
+			return -1;
+		}
+		return positionIndex(red, black, kings)+(colorIn=='B' ? positions[key] : 0);
+	}
+
+	static int groupKey(int redMen, int redKings, int blackMen, int blackKings) {
+		return ((redMen*(MAX_KIND+1)+redKings)*(MAX_KIND+1)+blackMen)*(MAX_KIND+1)+blackKings;
+	}
+
+	static int groupKey(int red, int black, int kings) {
+		return groupKey(Integer.bitCount(red&~kings), Integer.bitCount(red&kings),
+				Integer.bitCount(black&~kings), Integer.bitCount(black&kings));
+	}
+
+	/**
+	 * Gets the number of positions in a group for one side to move, including impossible ones
+	 * (pieces on the same square, or men on the row they would be kinged on)
+	 */
+	static long groupSize(int redMen, int redKings, int blackMen, int blackKings) {
+		return CHOOSE[32][redMen]*CHOOSE[32][redKings]*CHOOSE[32][blackMen]*CHOOSE[32][blackKings];
+	}
+
+	/**
+	 * Gets the index of a position within its group, for red to move
+	 */
+	static long positionIndex(int red, int black, int kings) {
+		int blackKings=black&kings;
+		int blackMen=black&~kings;
+		int redKings=red&kings;
+		int redMen=red&~kings;
+		long index=rank(redMen);
+		index=index*CHOOSE[32][Integer.bitCount(redKings)]+rank(redKings);
+		index=index*CHOOSE[32][Integer.bitCount(blackMen)]+rank(blackMen);
+		index=index*CHOOSE[32][Integer.bitCount(blackKings)]+rank(blackKings);
+		return index;
+	}
+
+	/**
+	 * Ranks a set of squares among all sets of the same size (the combinatorial number system)
+	 */
+	static long rank(int squares) {
+		long rank=0;
+		int i=1;
+		while(squares!=0) {
+			int sq=Integer.numberOfTrailingZeros(squares);
+			squares&=squares-1;
+			rank+=CHOOSE[sq][i++];
+		}
+		return rank;
+	}
+
+	/**
+	 * Gets the set of count squares with the given rank
+	 */
+	static int unrank(long rank, int count) {
+		int squares=0;
+		for(int i=count; i>0; i--) {
+			int sq=i-1;
+			while(sq<31 && CHOOSE[sq+1][i]<=rank) {
+				sq++;
+			}
+			rank-=CHOOSE[sq][i];
+			squares|=1<<sq;
+		}
+		return squares;
+	}
+
+	/**
+	 * Writes the file header and group table. Used by TablebaseGenerator.
+	 */
+	static ByteBuffer header(int maxPiecesIn, boolean distancesIn, int[][] groups, long[] resultOffsetsIn, long[] distanceOffsetsIn) {
+		ByteBuffer header=ByteBuffer.allocate(HEADER_BYTES+groups.length*GROUP_BYTES);
+		header.putInt(MAGIC).putInt(VERSION).putInt(maxPiecesIn).putInt(distancesIn ? 1 : 0).putInt(groups.length);
+		for(int g=0; g<groups.length; g++) {
+			for(int k=0; k<4; k++) {
+				header.put((byte)groups[g][k]);
+			}
+			header.putInt((int)groupSize(groups[g][0], groups[g][1], groups[g][2], groups[g][3]));
+			header.putLong(resultOffsetsIn[g]);
+			header.putLong(distancesIn ? distanceOffsetsIn[g] : -1);
+		}
+		header.flip();
+		return header;
+	}
+}
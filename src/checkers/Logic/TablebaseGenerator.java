@@ -0,0 +1,255 @@
+package checkers.Logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a Tablebase file by retrograde analysis. Groups of positions are solved from the fewest pieces up (and,
+ * for the same number of pieces, the fewest men first, since a man being kinged moves a position into the group
+ * with one more king). Each group is solved in passes: a position is won once one of its moves reaches a
+ * position already known to be lost for the opponent, and lost once all of its moves reach positions already
+ * known to be won for the opponent. Whatever is still unknown when a pass changes nothing is a draw.
+ * The rules match the search: a side with no pieces or no moves has lost.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class TablebaseGenerator {
+	//values held while solving; INVALID marks impossible positions
+	private static final byte INVALID=4;
+
+	private final int maxPieces;
+	private final boolean distances;
+	//indexed by Tablebase.groupKey
+	private final byte[][] results;
+	private final byte[][] distanceTable;
+	private final long[] moves;
+	private final Appendable log;
+	//the position decoded by decode, and the result found by solvePosition
+	private int red;
+	private int black;
+	private int kings;
+	private int result;
+	private int resultDistance;
+
+	/**
+	 * @param maxPiecesIn The most pieces (of both colors together) to solve positions for
+	 * @param distancesIn Whether to record the number of plies to the end of the game
+	 * @param logIn Where to report progress, or null
+	 */
+	public TablebaseGenerator(int maxPiecesIn, boolean distancesIn, Appendable logIn) {
+		maxPieces=maxPiecesIn;
+		distances=distancesIn;
+		int keys=Tablebase.groupKey(Tablebase.MAX_KIND, Tablebase.MAX_KIND, Tablebase.MAX_KIND, Tablebase.MAX_KIND)+1;
+		results=new byte[keys][];
+		distanceTable=new byte[keys][];
+		moves=new long[MoveGenerator.MAX_MOVES];
+		log=logIn;
+	}
+
+	/**
+	 * Solves every group and writes the tablebase
+	 * @param file Where to write it
+	 * @throws IOException
+	 */
+	public void generate(Path file) throws IOException {
+		int[][] groups=groups(maxPieces);
+		for(int[] group : groups) {
+			long size=Tablebase.groupSize(group[0], group[1], group[2], group[3]);
+			if(2*size>Integer.MAX_VALUE) {
+				throw new IOException("too many positions to solve with "+maxPieces+" pieces");
+			}
+			long start=System.nanoTime();
+			solve(group);
+			if(log!=null) {
+				log.append(String.format("%d red men, %d red kings v %d black men, %d black kings: %d positions, %d ms%n",
+						group[0], group[1], group[2], group[3], 2*size, (System.nanoTime()-start)/1000000));
+			}
+		}
+		write(file, groups);
+	}
+
+	/**
+	 * Lists the groups to solve, in the order they can be solved
+	 */
+	static int[][] groups(int maxPiecesIn) {
+		List<int[]> list=new ArrayList<int[]>();
+		for(int pieces=2; pieces<=maxPiecesIn; pieces++) {
+			for(int men=0; men<=pieces; men++) {
+				for(int red=1; red<pieces; red++) {
+					int black=pieces-red;
+					for(int redMen=0; redMen<=red; redMen++) {
+						int blackMen=men-redMen;
+						if(blackMen>=0 && blackMen<=black && red<=Tablebase.MAX_KIND && black<=Tablebase.MAX_KIND) {
+							list.add(new int[] {redMen, red-redMen, blackMen, black-blackMen});
+						}
+					}
+				}
+			}
+		}
+		return list.toArray(new int[0][]);
+	}
+
+	private void solve(int[] group) {
+		int size=(int)Tablebase.groupSize(group[0], group[1], group[2], group[3]);
+		byte[] value=new byte[2*size];
+		byte[] distance=new byte[2*size];
+		short[] pass=new short[2*size];
+		int key=Tablebase.groupKey(group[0], group[1], group[2], group[3]);
+		//children in this group are looked up in the arrays being filled
+		results[key]=value;
+		distanceTable[key]=distance;
+		for(int i=0; i<2*size; i++) {
+			if(!decode(group, i%size)) {
+				value[i]=INVALID;
+			}
+		}
+		boolean changed=true;
+		for(short p=1; changed; p++) {
+			changed=false;
+			for(int i=0; i<2*size; i++) {
+				if(value[i]!=Tablebase.UNKNOWN) {
+					continue;
+				}
+				decode(group, i%size);
+				char colorIn = i<size ? 'R' : 'B';
+				if(solvePosition(new Board(red, black, kings), colorIn, key, p, pass)) {
+					value[i]=(byte)result;
+					distance[i]=(byte)Math.min(255, resultDistance);
+					pass[i]=p;
+					changed=true;
+				}
+			}
+		}
+		for(int i=0; i<2*size; i++) {
+			if(value[i]==Tablebase.UNKNOWN) {
+				value[i]=Tablebase.DRAW;
+			}
+		}
+	}
+
+	/**
+	 * Decodes a position index into red, black and kings
+	 * @return Whether the position is possible
+	 */
+	private boolean decode(int[] group, long index) {
+		int blackKings=Tablebase.unrank(index%Tablebase.CHOOSE[32][group[3]], group[3]);
+		index/=Tablebase.CHOOSE[32][group[3]];
+		int blackMen=Tablebase.unrank(index%Tablebase.CHOOSE[32][group[2]], group[2]);
+		index/=Tablebase.CHOOSE[32][group[2]];
+		int redKings=Tablebase.unrank(index%Tablebase.CHOOSE[32][group[1]], group[1]);
+		index/=Tablebase.CHOOSE[32][group[1]];
+		int redMen=Tablebase.unrank(index, group[0]);
+		red=redMen|redKings;
+		black=blackMen|blackKings;
+		kings=redKings|blackKings;
+		int pieces=group[0]+group[1]+group[2]+group[3];
+		//no overlapping pieces, and no men on the row they would have been kinged on
+		return Integer.bitCount(red|black)==pieces && (redMen&0xF)==0 && (blackMen&0xF0000000)==0;
+	}
+
+	/**
+	 * Tries to decide a position from its moves
+	 * @param groupKey The group being solved
+	 * @param thisPass Children in the group being solved only count if they were decided in an earlier pass
+	 * @param pass The pass each position in the group being solved was decided in
+	 * @return Whether the position was decided, with the result in result and resultDistance
+	 */
+	private boolean solvePosition(Board board, char colorIn, int groupKey, short thisPass, short[] pass) {
+		int count=MoveGenerator.generate(board, colorIn, moves);
+		if(count==0) {
+			result=Tablebase.LOSS;
+			resultDistance=0;
+			return true;
+		}
+		int win=Integer.MAX_VALUE;
+		int loss=0;
+		boolean allWon=true;
+		char other = colorIn=='R' ? 'B' : 'R';
+		for(int i=0; i<count; i++) {
+			int kingsBefore=board.make(moves[i]);
+			int cRed=board.getRedMask();
+			int cBlack=board.getBlackMask();
+			int cKings=board.getKingMask();
+			board.unmake(moves[i], kingsBefore);
+			if(cRed==0 || cBlack==0) {
+				//the move took the opponent's last piece
+				win=1;
+				continue;
+			}
+			int key=Tablebase.groupKey(cRed, cBlack, cKings);
+			int size=(int)Tablebase.groupSize(Integer.bitCount(cRed&~cKings), Integer.bitCount(cRed&cKings),
+					Integer.bitCount(cBlack&~cKings), Integer.bitCount(cBlack&cKings));
+			int index=(int)Tablebase.positionIndex(cRed, cBlack, cKings)+(other=='B' ? size : 0);
+			byte[] childValues=results[key];
+			int childValue=childValues[index];
+			if(key==groupKey && childValue!=Tablebase.UNKNOWN && pass[index]>=thisPass) {
+				//decided during this pass, so its distance is not settled yet
+				childValue=Tablebase.UNKNOWN;
+			}
+			int childDistance=distanceTable[key][index]&0xFF;
+			if(childValue==Tablebase.LOSS) {
+				win=Math.min(win, childDistance+1);
+			}else if(childValue==Tablebase.WIN) {
+				loss=Math.max(loss, childDistance+1);
+			}else {
+				allWon=false;
+			}
+		}
+		if(win!=Integer.MAX_VALUE) {
+			result=Tablebase.WIN;
+			resultDistance=win;
+			return true;
+		}else if(allWon) {
+			result=Tablebase.LOSS;
+			resultDistance=loss;
+			return true;
+		}
+		return false;
+	}
+
+	private void write(Path file, int[][] groups) throws IOException {
+		long[] resultOffsets=new long[groups.length];
+		long[] distanceOffsets=new long[groups.length];
+		long offset=Tablebase.HEADER_BYTES+(long)groups.length*Tablebase.GROUP_BYTES;
+		for(int g=0; g<groups.length; g++) {
+			long entries=2*Tablebase.groupSize(groups[g][0], groups[g][1], groups[g][2], groups[g][3]);
+			resultOffsets[g]=offset;
+			offset+=(entries+3)/4;
+			if(distances) {
+				distanceOffsets[g]=offset;
+				offset+=entries;
+			}
+		}
+		if(offset>Integer.MAX_VALUE) {
+			throw new IOException("tablebase would be larger than 2GB");
+		}
+		try(FileChannel channel=FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, Tablebase.header(maxPieces, distances, groups, resultOffsets, distanceOffsets));
+			for(int[] group : groups) {
+				int key=Tablebase.groupKey(group[0], group[1], group[2], group[3]);
+				byte[] value=results[key];
+				byte[] packed=new byte[(value.length+3)/4];
+				for(int i=0; i<value.length; i++) {
+					int v = value[i]==INVALID ? Tablebase.UNKNOWN : value[i];
+					packed[i>>2]|=v<<((i&3)<<1);
+				}
+				writeFully(channel, ByteBuffer.wrap(packed));
+				if(distances) {
+					writeFully(channel, ByteBuffer.wrap(distanceTable[key]));
+				}
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
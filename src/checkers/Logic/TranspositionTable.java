@@ -0,0 +1,234 @@
+package checkers.Logic;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size hash table of search results, kept in a primitive array so probing and storing never allocate.
+ * The number of entries is the largest power of two that fits in the requested size, and a position's
+ * entry is found from the low bits of its Zobrist hash.
+ * <p>
+ * The table can be shared by searches on several threads without locking. Each entry is three longs: a check word,
+ * the best move and the packed depth/bound/score. The check word is the key XORed with the other two, so an entry
+ * that was half written by one thread while another read it does not match its key and is treated as a miss.
+ * <p>
+ * One table can also be shared by every game in the process (see shared), so positions searched for one game speed
+ * up the others. Each entry records the search generation (see newSearch) and the owner, a number identifying the
+ * game, that stored it. The generation lets AGED replacement let go of entries from finished searches, and the owner
+ * lets the table count how many hits one game got from another's work.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class TranspositionTable {
+	/** The stored score is the exact value of the position */
+	public static final int EXACT=0;
+	/** The stored score is a lower bound (the search failed high) */
+	public static final int LOWER=1;
+	/** The stored score is an upper bound (the search failed low) */
+	public static final int UPPER=2;
+
+	/** Bytes used by each entry */
+	static final int ENTRY_BYTES=24;
+
+	/**
+	 * How store decides whether to overwrite the entry already in a slot
+	 */
+	public enum Replacement {
+		/** Always keep the newest result */
+		ALWAYS,
+		/** Keep the result searched to the greater depth, or the newest one for the same position */
+		DEPTH_PREFERRED,
+		/** As DEPTH_PREFERRED, except that entries more than the age window's generations old are always replaced */
+		AGED
+	}
+
+	/** Size of the table returned by shared, unless the checkers.sharedTableMb system property sets one */
+	public static final int DEFAULT_SHARED_MB=256;
+	private static TranspositionTable shared;
+
+	//entry i is at [3i] check word, [3i+1] move, [3i+2] data
+	//data: bits 0-7 depth+1, 8-9 bound, 16-31 score, 32-47 generation, 48-63 owner
+	private final long[] entries;
+	private final int mask;
+	private final Replacement replacement;
+	private volatile int generation;
+	private int ageWindow;
+	private final AtomicInteger owners;
+	private final LongAdder probes;
+	private final LongAdder hits;
+	private final LongAdder sharedHits;
+
+	/**
+	 * @param megabytes The most memory the table may use
+	 * @param replacementIn
+	 */
+	public TranspositionTable(int megabytes, Replacement replacementIn) {
+		long bytes=Math.max(1, megabytes)*1024L*1024L;
+		int count=Integer.highestOneBit((int)Math.min(1<<28, bytes/ENTRY_BYTES));
+		entries=new long[3*count];
+		mask=count-1;
+		replacement=replacementIn;
+		ageWindow=1;
+		owners=new AtomicInteger();
+		probes=new LongAdder();
+		hits=new LongAdder();
+		sharedHits=new LongAdder();
+	}
+
+	/**
+	 * Gets the process-wide table, making it on first use. Its size is the checkers.sharedTableMb system property,
+	 * or DEFAULT_SHARED_MB, and it uses AGED replacement.
+	 */
+	public static synchronized TranspositionTable shared() {
+		if(shared==null) {
+			shared=new TranspositionTable(Integer.getInteger("checkers.sharedTableMb", DEFAULT_SHARED_MB), Replacement.AGED);
+		}
+		return shared;
+	}
+
+	public int size() {
+		return mask+1;
+	}
+
+	public void clear() {
+		Arrays.fill(entries, 0L);
+	}
+
+	/**
+	 * Gives out a number for a game to tag its entries with, so hits on another game's entries can be counted
+	 * @return A number from 1 to 65535, reused after 65535 games
+	 */
+	public int newOwner() {
+		return owners.getAndIncrement()%0xFFFF+1;
+	}
+
+	/**
+	 * Starts a new generation. Each search calls it once as it starts.
+	 */
+	public void newSearch() {
+		generation=(generation+1)&0xFFFF;
+	}
+
+	/**
+	 * Sets how many generations an entry is protected for under AGED replacement. A table shared by games that search
+	 * at the same time should allow about as many generations as there are searches running at once.
+	 * @param generations At least 1
+	 */
+	public void setAgeWindow(int generations) {
+		ageWindow=Math.max(1, generations);
+	}
+
+	/**
+	 * Looks up a position
+	 * @param key The position's hash, including the side to move
+	 * @param entry Receives the best move at [0] and the packed data at [1] (see depth, bound and score)
+	 * @return Whether the position was in the table
+	 */
+	public boolean probe(long key, long[] entry) {
+		int i=3*((int)key&mask);
+		long check=entries[i];
+		long move=entries[i+1];
+		long data=entries[i+2];
+		if(data==0 || (check^move^data)!=key) {
+			return false;
+		}
+		entry[0]=move;
+		entry[1]=data;
+		return true;
+	}
+
+	public static int depth(long data) {
+		return (int)(data&0xFF)-1;
+	}
+
+	public static int bound(long data) {
+		return (int)(data>>>8)&3;
+	}
+
+	public static int score(long data) {
+		return (short)(data>>>16);
+	}
+
+	/**
+	 * Gets the owner that stored an entry, or 0 if it was stored without one
+	 */
+	public static int owner(long data) {
+		return (int)(data>>>48);
+	}
+
+	/**
+	 * Adds a search's probe counts to the table's totals. Searches count their own probes and add them when
+	 * they finish, so probing does not touch shared counters.
+	 * @param probeCount The number of probes
+	 * @param hitCount The number that found their position
+	 * @param sharedHitCount The number that found an entry stored by another owner
+	 */
+	public void recordProbes(long probeCount, long hitCount, long sharedHitCount) {
+		probes.add(probeCount);
+		hits.add(hitCount);
+		sharedHits.add(sharedHitCount);
+	}
+
+	public long getProbes() {
+		return probes.sum();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of hits on entries another owner stored
+	 */
+	public long getSharedHits() {
+		return sharedHits.sum();
+	}
+
+	/**
+	 * Records the result of searching a position with no owner, subject to the replacement policy
+	 * @param key The position's hash, including the side to move
+	 * @param depth The depth the position was searched to
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score
+	 * @param move The best move found, or Move.NONE
+	 */
+	public void store(long key, int depth, int bound, int score, long move) {
+		store(key, depth, bound, score, move, 0);
+	}
+
+	/**
+	 * Records the result of searching a position, subject to the replacement policy
+	 * @param key The position's hash, including the side to move
+	 * @param depth The depth the position was searched to
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score Between Short.MIN_VALUE and Short.MAX_VALUE
+	 * @param move The best move found, or Move.NONE
+	 * @param owner See newOwner
+	 */
+	public void store(long key, int depth, int bound, int score, long move, int owner) {
+		int i=3*((int)key&mask);
+		long oldMove=entries[i+1];
+		long oldData=entries[i+2];
+		boolean samePosition=(entries[i]^oldMove^oldData)==key;
+		int current=generation;
+		if(!samePosition && oldData!=0 && depth(oldData)>depth) {
+			if(replacement==Replacement.DEPTH_PREFERRED) {
+				return;
+			}
+			if(replacement==Replacement.AGED && ((current-(int)(oldData>>>32))&0xFFFF)<ageWindow) {
+				return;
+			}
+		}
+		if(move==Move.NONE && samePosition) {
+			//keep the old best move for ordering
+			move=oldMove;
+		}
+		//depth is stored +1 so that an empty slot (0) is never mistaken for a depth 0 entry
+		long data=((depth+1)&0xFF)|(bound<<8)|((long)(score&0xFFFF)<<16)|((long)current<<32)|((long)owner<<48);
+		entries[i+1]=move;
+		entries[i+2]=data;
+		entries[i]=key^move^data;
+	}
+}
@@ -0,0 +1,59 @@
+package checkers.Logic;
+
+/**
+ * Random keys for Zobrist hashing. A position's hash is the XOR of the key for each piece on its square,
+ * with SIDE XORed in when black is to move. The keys come from a fixed seed so hashes are the same in every run.
+ *
+ * @author Justin Gaudet
+ *
+ */
+class Zobrist {
+	static final int RED_MAN=0;
+	static final int RED_KING=1;
+	static final int BLACK_MAN=2;
+	static final int BLACK_KING=3;
+
+	/** Keys indexed by [piece type][square] */
+	static final long[][] PIECE=new long[4][32];
+	static final long SIDE;
+
+	static {
+		long seed=0x5DEECE66DL;
+		for(int type=0; type<4; type++) {
+			for(int sq=0; sq<32; sq++) {
+				seed=next(seed);
+				PIECE[type][sq]=mix(seed);
+			}
+		}
+		SIDE=mix(next(seed));
+	}
+
+	private static long next(long seed) {
+		return seed+0x9E3779B97F4A7C15L;
+	}
+
+	//splitmix64 finalizer
+	private static long mix(long z) {
+		z=(z^(z>>>30))*0xBF58476D1CE4E5B9L;
+		z=(z^(z>>>27))*0x94D049BB133111EBL;
+		return z^(z>>>31);
+	}
+
+	static int type(boolean redIn, boolean kingIn) {
+		return (redIn ? RED_MAN : BLACK_MAN)+(kingIn ? 1 : 0);
+	}
+
+	/**
+	 * Hashes a set of board masks from scratch
+	 */
+	static long hash(int red, int black, int kings) {
+		long hash=0;
+		int occupied=red|black;
+		while(occupied!=0) {
+			int sq=Integer.numberOfTrailingZeros(occupied);
+			occupied&=occupied-1;
+			hash^=PIECE[type((red&(1<<sq))!=0, (kings&(1<<sq))!=0)][sq];
+		}
+		return hash;
+	}
+}
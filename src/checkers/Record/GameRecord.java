@@ -0,0 +1,160 @@
+package checkers.Record;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import checkers.Logic.Board;
+import checkers.Logic.LegalMoves;
+import checkers.Logic.Move;
+
+/**
+ * One game: the position it started from, the packed moves (see Move) played from there, its result and the engine
+ * settings it was played with, plus any other tags, such as PDN's Event or Date. A pass by a side that could not
+ * move is Move.NONE.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class GameRecord {
+	public enum Result {
+		UNFINISHED, RED_WIN, BLACK_WIN, DRAW
+	}
+
+	private final int red;
+	private final int black;
+	private final int kings;
+	private final char color;
+	private final long[] moves;
+	private final Result result;
+	private final int depth;
+	private final long moveTime;
+	private final Map<String, String> tags;
+
+	/**
+	 * @param startBoard The position the game started from. Only its masks are kept.
+	 * @param startColor The side to move first
+	 * @param movesIn The moves played, which are copied
+	 * @param resultIn
+	 * @param depthIn The computer's search depth, or 0 if it was not set
+	 * @param moveTimeIn The computer's time per move in milliseconds, or 0 if it was not set
+	 * @param tagsIn Other tags, which are copied, or null for none
+	 */
+	public GameRecord(Board startBoard, char startColor, long[] movesIn, Result resultIn, int depthIn, long moveTimeIn,
+			Map<String, String> tagsIn) {
+		red=startBoard.getRedMask();
+		black=startBoard.getBlackMask();
+		kings=startBoard.getKingMask();
+		color=startColor;
+		moves=movesIn.clone();
+		result=resultIn;
+		depth=depthIn;
+		moveTime=moveTimeIn;
+		tags = tagsIn==null || tagsIn.isEmpty() ? Collections.<String, String>emptyMap()
+				: Collections.unmodifiableMap(new LinkedHashMap<String, String>(tagsIn));
+	}
+
+	/**
+	 * Works out the result of a game from where it ended: a side to move with no pieces or moves has lost
+	 * @param board The final position
+	 * @param colorIn The side to move in it
+	 */
+	public static Result resultOf(Board board, char colorIn) {
+		int own = colorIn=='R' ? board.getRedMask() : board.getBlackMask();
+		if(own!=0 && !new LegalMoves(board, colorIn).isEmpty()) {
+			return Result.UNFINISHED;
+		}
+		return colorIn=='R' ? Result.BLACK_WIN : Result.RED_WIN;
+	}
+
+	/**
+	 * Makes a record of a game with no moves yet, starting from a position in checkers FEN (see Board.fromFen)
+	 * @param fen
+	 * @throws IllegalArgumentException if the string is not a position
+	 */
+	public static GameRecord fromFen(String fen) {
+		return new GameRecord(Board.fromFen(fen), Board.fenColor(fen), new long[0], Result.UNFINISHED, 0, 0, null);
+	}
+
+	/**
+	 * Gets a new board set up as the game started
+	 */
+	public Board getStartBoard() {
+		return new Board(red, black, kings);
+	}
+
+	/**
+	 * Whether the game started from the usual starting position with red to move
+	 */
+	public boolean isStandardStart() {
+		Board start=new Board();
+		return color=='R' && red==start.getRedMask() && black==start.getBlackMask() && kings==0;
+	}
+
+	public char getStartColor() {
+		return color;
+	}
+
+	/**
+	 * Gets a new board with the position after the given number of moves
+	 */
+	public Board getBoardAfter(int ply) {
+		Board board=getStartBoard();
+		for(int i=0; i<ply; i++) {
+			if(moves[i]!=Move.NONE) {
+				board.make(moves[i]);
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Gets the side to move after the given number of moves
+	 */
+	public char getColorAfter(int ply) {
+		return (ply%2==0) == (color=='R') ? 'R' : 'B';
+	}
+
+	public int getMoveCount() {
+		return moves.length;
+	}
+
+	public long getMove(int ply) {
+		return moves[ply];
+	}
+
+	public long[] getMoves() {
+		return moves.clone();
+	}
+
+	public Result getResult() {
+		return result;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getMoveTime() {
+		return moveTime;
+	}
+
+	/**
+	 * Gets the other tags, in the order they were given
+	 */
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	int getRedMask() {
+		return red;
+	}
+
+	int getBlackMask() {
+		return black;
+	}
+
+	int getKingMask() {
+		return kings;
+	}
+}
@@ -0,0 +1,18 @@
+package checkers.Record;
+
+import java.io.IOException;
+
+/**
+ * Anything games can be read from one at a time, such as RecordReader and PdnReader.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public interface GameSource {
+	/**
+	 * Reads the next game
+	 * @return The game, or null when there are no more
+	 * @throws IOException if the games cannot be read
+	 */
+	GameRecord next() throws IOException;
+}
@@ -0,0 +1,48 @@
+package checkers.Record;
+
+/**
+ * The PDN results PdnReader and PdnWriter share. Squares are numbered as in Board.squareToNumber, with red as PDN's
+ * White and black as its Black, and results give black's score first.
+ *
+ * @author Justin Gaudet
+ *
+ */
+final class Pdn {
+	private Pdn() {
+	}
+
+	static String result(GameRecord.Result result) {
+		switch(result) {
+		case BLACK_WIN:
+			return "1-0";
+		case RED_WIN:
+			return "0-1";
+		case DRAW:
+			return "1/2-1/2";
+		default:
+			return "*";
+		}
+	}
+
+	/**
+	 * Reads a result, including the 2-0 style some programs write
+	 * @return The result, or null if the text is not one
+	 */
+	static GameRecord.Result parseResult(String text) {
+		switch(text) {
+		case "1-0":
+		case "2-0":
+			return GameRecord.Result.BLACK_WIN;
+		case "0-1":
+		case "0-2":
+			return GameRecord.Result.RED_WIN;
+		case "1/2-1/2":
+		case "1-1":
+			return GameRecord.Result.DRAW;
+		case "*":
+			return GameRecord.Result.UNFINISHED;
+		default:
+			return null;
+		}
+	}
+}
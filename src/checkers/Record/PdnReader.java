@@ -0,0 +1,265 @@
+package checkers.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import checkers.Logic.Board;
+import checkers.Logic.LegalMoves;
+import checkers.Logic.Move;
+
+/**
+ * Reads games from PDN text one at a time, so files with any number of games are read without loading them. Each
+ * move is checked against the legal moves of the position it is played in. A capture may be written with every
+ * square it lands on or, if that leaves no doubt, only where it starts and ends. Comments in braces or after a
+ * semicolon, move numbers and pass are understood. Result, FEN, Depth and MoveTime tags fill in the record; others
+ * are kept as its tags.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class PdnReader implements GameSource, Closeable {
+	private final Reader in;
+	//a character read ahead, or -2 if there is none
+	private int peeked=-2;
+	private long line=1;
+
+	/**
+	 * @param inIn Read a character at a time, so it should be buffered
+	 */
+	public PdnReader(Reader inIn) {
+		in=inIn;
+	}
+
+	/**
+	 * Reads the next game
+	 * @return The game, or null at the end of the text
+	 * @throws IOException if the text cannot be read, or is not PDN, or has an illegal move
+	 */
+	@Override
+	public GameRecord next() throws IOException {
+		Map<String, String> tags=new LinkedHashMap<String, String>();
+		GameRecord.Result result=GameRecord.Result.UNFINISHED;
+		long[] moves=new long[64];
+		int count=0;
+		Board start=null;
+		Board board=null;
+		char color='R';
+		LegalMoves legal=new LegalMoves();
+		boolean any=false;
+		while(true) {
+			int c=skipSpace();
+			if(c<0) {
+				break;
+			}
+			if(c=='[') {
+				if(start!=null) {
+					//the next game's tags
+					peeked=c;
+					break;
+				}
+				readTag(tags);
+				any=true;
+				continue;
+			}
+			String token=readToken(c);
+			any=true;
+			GameRecord.Result ending=Pdn.parseResult(token);
+			if(ending!=null) {
+				result=ending;
+				break;
+			}
+			if(start==null) {
+				GameRecord position=position(tags);
+				start=position.getStartBoard();
+				board=new Board(start);
+				color=position.getStartColor();
+			}
+			token=token.replaceFirst("^\\d+\\.+", "");
+			if(token.isEmpty()) {
+				continue;
+			}
+			legal.generate(board, color);
+			long move=parseMove(token, board, legal);
+			if(count==moves.length) {
+				moves=Arrays.copyOf(moves, count*2);
+			}
+			moves[count++]=move;
+			if(move!=Move.NONE) {
+				board.make(move);
+			}
+			color = color=='R' ? 'B' : 'R';
+		}
+		if(!any) {
+			return null;
+		}
+		GameRecord position=position(tags);
+		if(start==null) {
+			start=position.getStartBoard();
+		}
+		String tagResult=tags.remove("Result");
+		if(result==GameRecord.Result.UNFINISHED && tagResult!=null && Pdn.parseResult(tagResult)!=null) {
+			result=Pdn.parseResult(tagResult);
+		}
+		tags.remove("FEN");
+		int depth=(int)number(tags.remove("Depth"));
+		long moveTime=number(tags.remove("MoveTime"));
+		return new GameRecord(start, position.getStartColor(), Arrays.copyOf(moves, count), result, depth, moveTime, tags);
+	}
+
+	/**
+	 * Gets the start position from the FEN tag, or the usual one with red to move, as a game with no moves
+	 */
+	private GameRecord position(Map<String, String> tags) throws IOException {
+		String fen=tags.get("FEN");
+		if(fen==null) {
+			return new GameRecord(new Board(), 'R', new long[0], GameRecord.Result.UNFINISHED, 0, 0, null);
+		}
+		try {
+			return GameRecord.fromFen(fen);
+		}catch(IllegalArgumentException e) {
+			throw error(e.getMessage());
+		}
+	}
+
+	private long number(String value) throws IOException {
+		if(value==null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		}catch(NumberFormatException e) {
+			throw error("not a number: "+value);
+		}
+	}
+
+	private long parseMove(String token, Board board, LegalMoves legal) throws IOException {
+		if(token.equals("pass")) {
+			if(!legal.isEmpty()) {
+				throw error("pass when there are moves");
+			}
+			return Move.NONE;
+		}
+		if(!token.matches("\\d+([-x]\\d+)+")) {
+			throw error("not a move: "+token);
+		}
+		boolean capture=token.indexOf('x')>=0;
+		String[] numbers=token.split("[-x]");
+		byte[] path=new byte[numbers.length*2];
+		int[] squares=new int[numbers.length];
+		for(int i=0; i<numbers.length; i++) {
+			try {
+				squares[i]=Board.numberToSquare(Integer.parseInt(numbers[i]));
+			}catch(IllegalArgumentException e) {
+				throw error("not a move: "+token);
+			}
+			path[2*i]=(byte)Board.row(squares[i]);
+			path[2*i+1]=(byte)Board.col(squares[i]);
+		}
+		if(legal.contains(path) && Move.isCapture(Move.fromPath(path))==capture) {
+			return Move.fromPath(path);
+		}
+		long found=Move.NONE;
+		if(numbers.length==2) {
+			for(int i=0; i<legal.size(); i++) {
+				long move=legal.get(i);
+				if(Move.from(move)==squares[0] && Move.to(move)==squares[1] && Move.isCapture(move)==capture) {
+					if(found!=Move.NONE) {
+						throw error("ambiguous move: "+token);
+					}
+					found=move;
+				}
+			}
+		}
+		if(found==Move.NONE) {
+			throw error("illegal move: "+token);
+		}
+		return found;
+	}
+
+	private void readTag(Map<String, String> tags) throws IOException {
+		StringBuilder name=new StringBuilder();
+		int c=skipSpace();
+		while(c>=0 && !Character.isWhitespace(c) && c!='"' && c!=']') {
+			name.append((char)c);
+			c=read();
+		}
+		if(c!='"') {
+			c=skipSpace();
+		}
+		if(c!='"') {
+			throw error("tag "+name+" has no value");
+		}
+		StringBuilder value=new StringBuilder();
+		for(c=read(); c!='"'; c=read()) {
+			if(c<0 || c=='\n') {
+				throw error("tag "+name+" is not closed");
+			}
+			if(c=='\\') {
+				c=read();
+			}
+			value.append((char)c);
+		}
+		if(skipSpace()!=']') {
+			throw error("tag "+name+" is not closed");
+		}
+		tags.put(name.toString(), value.toString());
+	}
+
+	private String readToken(int c) throws IOException {
+		StringBuilder token=new StringBuilder();
+		while(c>=0 && !Character.isWhitespace(c) && c!='{' && c!='[' && c!=';') {
+			token.append((char)c);
+			c=read();
+		}
+		peeked=c;
+		return token.toString();
+	}
+
+	/**
+	 * Skips white space and comments
+	 * @return The next character, or -1 at the end
+	 */
+	private int skipSpace() throws IOException {
+		while(true) {
+			int c=read();
+			if(c=='{') {
+				while(c>=0 && c!='}') {
+					c=read();
+				}
+			}else if(c==';') {
+				while(c>=0 && c!='\n') {
+					c=read();
+				}
+			}else if(c<0 || !Character.isWhitespace(c)) {
+				return c;
+			}
+		}
+	}
+
+	private int read() throws IOException {
+		int c;
+		if(peeked!=-2) {
+			c=peeked;
+			peeked=-2;
+			return c;
+		}
+		c=in.read();
+		if(c=='\n') {
+			line++;
+		}
+		return c;
+	}
+
+	private IOException error(String message) {
+		return new IOException("PDN line "+line+": "+message);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,111 @@
+package checkers.Record;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import checkers.Logic.Board;
+import checkers.Logic.Move;
+
+/**
+ * Writes games as PDN text, one at a time. Every game gets a FEN tag, since red moves first here while PDN's
+ * starting position has black to move, and the engine settings go in Depth and MoveTime tags. Captures are written
+ * with every square they land on, so they read back the same however a king got there; a pass is written as pass.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class PdnWriter implements Closeable, Flushable {
+	private static final int LINE_LENGTH=79;
+
+	private final Writer out;
+
+	public PdnWriter(Writer outIn) {
+		out=outIn;
+	}
+
+	/**
+	 * Writes a game followed by a blank line
+	 * @param game
+	 * @throws IOException
+	 */
+	public void write(GameRecord game) throws IOException {
+		for(Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			tag(tag.getKey(), tag.getValue());
+		}
+		String result=Pdn.result(game.getResult());
+		tag("Result", result);
+		Board board=game.getStartBoard();
+		tag("FEN", board.toFen(game.getStartColor()));
+		if(game.getDepth()!=0) {
+			tag("Depth", Integer.toString(game.getDepth()));
+		}
+		if(game.getMoveTime()!=0) {
+			tag("MoveTime", Long.toString(game.getMoveTime()));
+		}
+		out.write("\n");
+		StringBuilder line=new StringBuilder();
+		for(int ply=0; ply<game.getMoveCount(); ply++) {
+			long move=game.getMove(ply);
+			String text=move(move, board.getRedMask()|board.getBlackMask());
+			if(ply%2==0) {
+				text=(ply/2+1)+". "+text;
+			}
+			append(line, text);
+			if(move!=Move.NONE) {
+				board.make(move);
+			}
+		}
+		append(line, result);
+		out.write(line.toString());
+		out.write("\n\n");
+	}
+
+	/**
+	 * Writes a move with the PDN numbers of the squares it passes through, such as 22-18 or 22x15x8
+	 * @param move A packed move (see Move)
+	 * @param occupied The occupied squares before the move
+	 */
+	public static String move(long move, int occupied) {
+		if(move==Move.NONE) {
+			return "pass";
+		}
+		byte[] path=Move.toPath(move, occupied);
+		StringBuilder text=new StringBuilder();
+		for(int i=0; i<path.length; i+=2) {
+			if(i>0) {
+				text.append(Move.isCapture(move) ? 'x' : '-');
+			}
+			text.append(Board.squareToNumber(Board.square(path[i], path[i+1])));
+		}
+		return text.toString();
+	}
+
+	private void tag(String name, String value) throws IOException {
+		out.write("["+name+" \""+value.replace("\\", "\\\\").replace("\"", "\\\"")+"\"]\n");
+	}
+
+	private void append(StringBuilder line, String text) throws IOException {
+		if(line.length()>0 && line.length()+1+text.length()>LINE_LENGTH) {
+			out.write(line.toString());
+			out.write("\n");
+			line.setLength(0);
+		}
+		if(line.length()>0) {
+			line.append(' ');
+		}
+		line.append(text);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -0,0 +1,218 @@
+package checkers.Record;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import checkers.Logic.Board;
+import checkers.Logic.LegalMoves;
+import checkers.Logic.Move;
+
+/**
+ * The binary game-record format. A file is the magic number followed by games, each one its length in bytes as a
+ * varint and then:
+ * <ul>
+ * <li>a flags byte: the result's ordinal in bits 0-1, bit 2 set if black moved first and bit 3 set if the game
+ * started from a position other than the usual one</li>
+ * <li>the engine's depth and time per move in milliseconds, as varints</li>
+ * <li>if bit 3 is set, the red, black and king masks of the start position, 4 bytes each</li>
+ * <li>the number of other tags, then each tag's name and value as a varint length and UTF-8 bytes</li>
+ * <li>the number of moves, then each move as a varint of from | to&lt;&lt;5 | choice&lt;&lt;10, where choice is 0
+ * for a simple move and otherwise 1 more than the capture's index among the legal captures from the same square to
+ * the same square, in the order MoveGenerator gives them. Nearly every move takes 2 bytes, and 0 is a pass.</li>
+ * </ul>
+ * The captured pieces are not stored: they are recovered by replaying the game, which also checks every move.
+ * Varints are unsigned, 7 bits to a byte, low bits first, with the top bit set on every byte but the last.
+ * The length in front of each game lets a reader skip a game without decoding it.
+ *
+ * @author Justin Gaudet
+ *
+ */
+final class RecordFormat {
+	/** "CKR1" */
+	static final int MAGIC=0x434B5231;
+	/** The largest game a reader accepts, which keeps a damaged length from allocating without limit */
+	static final int MAX_GAME_BYTES=1<<20;
+
+	private static final int BLACK_FIRST=4;
+	private static final int CUSTOM_START=8;
+
+	private RecordFormat() {
+	}
+
+	/**
+	 * Writes a game's body, without its length
+	 * @param legal Refilled with each position's moves
+	 * @throws BufferOverflowException if the buffer is too small
+	 * @throws IllegalArgumentException if a move is not legal where it is played
+	 */
+	static void encode(GameRecord game, ByteBuffer out, LegalMoves legal) {
+		boolean custom=!game.isStandardStart() || game.getStartColor()!='R';
+		int flags=game.getResult().ordinal();
+		if(game.getStartColor()=='B') {
+			flags|=BLACK_FIRST;
+		}
+		if(custom) {
+			flags|=CUSTOM_START;
+		}
+		out.put((byte)flags);
+		putVarint(out, game.getDepth());
+		putVarint(out, game.getMoveTime());
+		if(custom) {
+			out.putInt(game.getRedMask());
+			out.putInt(game.getBlackMask());
+			out.putInt(game.getKingMask());
+		}
+		putVarint(out, game.getTags().size());
+		for(Map.Entry<String, String> tag : game.getTags().entrySet()) {
+			putString(out, tag.getKey());
+			putString(out, tag.getValue());
+		}
+		int count=game.getMoveCount();
+		putVarint(out, count);
+		Board board=game.getStartBoard();
+		char color=game.getStartColor();
+		for(int i=0; i<count; i++) {
+			long move=game.getMove(i);
+			if(move==Move.NONE) {
+				putVarint(out, 0);
+			}else {
+				legal.generate(board, color);
+				if(!legal.contains(move)) {
+					throw new IllegalArgumentException("move "+(i+1)+" ("+Move.toString(move)+") is not legal");
+				}
+				int choice=0;
+				if(Move.isCapture(move)) {
+					choice=1;
+					for(int j=0; legal.get(j)!=move; j++) {
+						if(sameCapture(legal.get(j), move)) {
+							choice++;
+						}
+					}
+				}
+				putVarint(out, Move.from(move) | Move.to(move)<<5 | choice<<10);
+				board.make(move);
+			}
+			color = color=='R' ? 'B' : 'R';
+		}
+	}
+
+	/**
+	 * Whether two moves are captures between the same squares
+	 */
+	private static boolean sameCapture(long a, long b) {
+		return Move.isCapture(a) && Move.from(a)==Move.from(b) && Move.to(a)==Move.to(b);
+	}
+
+	/**
+	 * Reads a game's body, which must fill the buffer
+	 * @param legal Refilled with each position's moves
+	 * @throws IOException if the body is damaged or has an illegal move
+	 */
+	static GameRecord decode(ByteBuffer in, LegalMoves legal) throws IOException {
+		try {
+			int flags=in.get();
+			GameRecord.Result[] results=GameRecord.Result.values();
+			GameRecord.Result result=results[flags&3];
+			char color = (flags&BLACK_FIRST)!=0 ? 'B' : 'R';
+			int depth=(int)getVarint(in);
+			long moveTime=getVarint(in);
+			Board start = (flags&CUSTOM_START)!=0 ? new Board(in.getInt(), in.getInt(), in.getInt()) : new Board();
+			int tagCount=count(in);
+			Map<String, String> tags=new LinkedHashMap<String, String>();
+			for(int i=0; i<tagCount; i++) {
+				String name=getString(in);
+				tags.put(name, getString(in));
+			}
+			long[] moves=new long[count(in)];
+			Board board=new Board(start);
+			char side=color;
+			for(int i=0; i<moves.length; i++) {
+				long packed=getVarint(in);
+				if(packed!=0) {
+					legal.generate(board, side);
+					moves[i]=find(legal, (int)packed&31, (int)(packed>>>5)&31, packed>>>10);
+					if(moves[i]==Move.NONE) {
+						throw new IOException("game record move "+(i+1)+" is not legal");
+					}
+					board.make(moves[i]);
+				}
+				side = side=='R' ? 'B' : 'R';
+			}
+			if(in.hasRemaining()) {
+				throw new IOException("game record has "+in.remaining()+" bytes left over");
+			}
+			return new GameRecord(start, color, moves, result, depth, moveTime, tags);
+		}catch(BufferUnderflowException e) {
+			throw new IOException("game record is cut short");
+		}
+	}
+
+	/**
+	 * Finds a stored move among the legal moves
+	 * @return The move, or Move.NONE if there is no such move
+	 */
+	private static long find(LegalMoves legal, int from, int to, long choice) {
+		if(choice==0) {
+			long move=Move.encode(from, to, 0);
+			return legal.contains(move) ? move : Move.NONE;
+		}
+		for(int i=0; i<legal.size(); i++) {
+			long move=legal.get(i);
+			if(Move.isCapture(move) && Move.from(move)==from && Move.to(move)==to && --choice==0) {
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+
+	static void putVarint(ByteBuffer out, long value) {
+		while((value&~0x7FL)!=0) {
+			out.put((byte)(value|0x80));
+			value>>>=7;
+		}
+		out.put((byte)value);
+	}
+
+	/**
+	 * @throws IOException if the varint runs past 64 bits
+	 */
+	static long getVarint(ByteBuffer in) throws IOException {
+		long value=0;
+		for(int shift=0; shift<64; shift+=7) {
+			byte b=in.get();
+			value|=(b&0x7FL)<<shift;
+			if(b>=0) {
+				return value;
+			}
+		}
+		throw new IOException("varint is too long");
+	}
+
+	/**
+	 * Reads a count, which cannot be more than the bytes left since each item takes at least one
+	 */
+	private static int count(ByteBuffer in) throws IOException {
+		long count=getVarint(in);
+		if(count>in.remaining()) {
+			throw new IOException("game record is cut short");
+		}
+		return (int)count;
+	}
+
+	private static void putString(ByteBuffer out, String value) {
+		byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+		putVarint(out, bytes.length);
+		out.put(bytes);
+	}
+
+	private static String getString(ByteBuffer in) throws IOException {
+		byte[] bytes=new byte[count(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,156 @@
+package checkers.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import checkers.Logic.LegalMoves;
+
+/**
+ * Reads games in the binary format (see RecordFormat) from a channel one at a time through a fixed buffer, so files
+ * with any number of games are read without loading them. A reader is not safe to share between threads.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class RecordReader implements GameSource, Closeable {
+	private static final int BUFFER_BYTES=1<<16;
+
+	private final ReadableByteChannel channel;
+	//reused to replay each game's moves
+	private final LegalMoves legal=new LegalMoves();
+	private ByteBuffer buffer;
+	private boolean ended;
+	private long read;
+
+	/**
+	 * Starts reading a channel, checking its magic number
+	 * @param channelIn
+	 * @throws IOException if the channel does not hold games
+	 */
+	public RecordReader(ReadableByteChannel channelIn) throws IOException {
+		channel=channelIn;
+		buffer=ByteBuffer.allocateDirect(BUFFER_BYTES);
+		buffer.flip();
+		if(!fill(4) || buffer.getInt()!=RecordFormat.MAGIC) {
+			throw new IOException("not a game record file");
+		}
+	}
+
+	/**
+	 * Opens a file to read
+	 * @param file
+	 * @throws IOException if the file cannot be read or does not hold games
+	 */
+	public static RecordReader open(Path file) throws IOException {
+		FileChannel channel=FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new RecordReader(channel);
+		}catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the next game
+	 * @return The game, or null at the end of the channel
+	 * @throws IOException if the channel cannot be read or a game is damaged
+	 */
+	@Override
+	public GameRecord next() throws IOException {
+		ByteBuffer body=nextBody();
+		if(body==null) {
+			return null;
+		}
+		GameRecord game=RecordFormat.decode(body, legal);
+		read++;
+		return game;
+	}
+
+	/**
+	 * Passes over the next game without decoding it
+	 * @return Whether there was a game
+	 * @throws IOException if the channel cannot be read
+	 */
+	public boolean skip() throws IOException {
+		if(nextBody()==null) {
+			return false;
+		}
+		read++;
+		return true;
+	}
+
+	/**
+	 * Gets the number of games read or skipped
+	 */
+	public long getRead() {
+		return read;
+	}
+
+	/**
+	 * Gets the next game's body as a slice of the buffer, which stays good until the buffer is next filled
+	 */
+	private ByteBuffer nextBody() throws IOException {
+		long length=0;
+		for(int shift=0; ; shift+=7) {
+			if(!fill(1)) {
+				if(shift==0) {
+					return null;
+				}
+				throw new IOException("game record is cut short");
+			}
+			byte b=buffer.get();
+			length|=(b&0x7FL)<<shift;
+			if(b>=0) {
+				break;
+			}
+			if(shift>=28) {
+				throw new IOException("game record length is damaged");
+			}
+		}
+		if(length>RecordFormat.MAX_GAME_BYTES) {
+			throw new IOException("game record length "+length+" is more than "+RecordFormat.MAX_GAME_BYTES);
+		}
+		if(!fill((int)length)) {
+			throw new IOException("game record is cut short");
+		}
+		ByteBuffer body=buffer.slice();
+		body.limit((int)length);
+		buffer.position(buffer.position()+(int)length);
+		return body;
+	}
+
+	/**
+	 * Reads from the channel until the buffer holds at least the given number of bytes, growing it for a large game
+	 * @return false if the channel ended first
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if(buffer.remaining()>=bytes) {
+			return true;
+		}
+		if(bytes>buffer.capacity()) {
+			ByteBuffer larger=ByteBuffer.allocateDirect(Integer.highestOneBit(bytes-1)<<1);
+			larger.put(buffer);
+			larger.flip();
+			buffer=larger;
+		}
+		buffer.compact();
+		while(buffer.position()<bytes && !ended) {
+			if(channel.read(buffer)<0) {
+				ended=true;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining()>=bytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
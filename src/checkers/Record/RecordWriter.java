@@ -0,0 +1,145 @@
+package checkers.Record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import checkers.Logic.LegalMoves;
+
+/**
+ * Writes games in the binary format (see RecordFormat) to a channel, one at a time through a fixed buffer, so any
+ * number of games can be written without keeping them. Writing is synchronized, so games finished on different
+ * threads can share one writer.
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class RecordWriter implements Closeable {
+	private static final int BUFFER_BYTES=1<<16;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	//holds one game while it is encoded, since its length goes in front of it
+	private ByteBuffer game;
+	//reused to replay each game's moves
+	private final LegalMoves legal=new LegalMoves();
+	private long written;
+
+	/**
+	 * Starts a new file on a channel, beginning with the magic number
+	 * @param channelIn
+	 */
+	public RecordWriter(WritableByteChannel channelIn) {
+		this(channelIn, true);
+	}
+
+	private RecordWriter(WritableByteChannel channelIn, boolean header) {
+		channel=channelIn;
+		buffer=ByteBuffer.allocateDirect(BUFFER_BYTES);
+		game=ByteBuffer.allocate(4096);
+		if(header) {
+			buffer.putInt(RecordFormat.MAGIC);
+		}
+	}
+
+	/**
+	 * Opens a file to add games to, creating it if it does not exist
+	 * @param file
+	 * @throws IOException if the file cannot be opened, or it already holds something other than games
+	 */
+	public static RecordWriter append(Path file) throws IOException {
+		FileChannel channel=FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ);
+		try {
+			boolean empty=channel.size()==0;
+			if(!empty) {
+				ByteBuffer magic=ByteBuffer.allocate(4);
+				channel.read(magic, 0);
+				magic.flip();
+				if(magic.remaining()<4 || magic.getInt()!=RecordFormat.MAGIC) {
+					throw new IOException(file+" is not a game record file");
+				}
+				channel.position(channel.size());
+			}
+			return new RecordWriter(channel, empty);
+		}catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds a game
+	 * @param record
+	 * @throws IOException if the channel cannot be written, or the game is larger than a reader accepts
+	 * @throws IllegalArgumentException if the game has an illegal move
+	 */
+	public synchronized void write(GameRecord record) throws IOException {
+		while(true) {
+			game.clear();
+			try {
+				RecordFormat.encode(record, game, legal);
+				break;
+			}catch(BufferOverflowException e) {
+				if(game.capacity()>=RecordFormat.MAX_GAME_BYTES) {
+					throw new IOException("game record is larger than "+RecordFormat.MAX_GAME_BYTES+" bytes");
+				}
+				game=ByteBuffer.allocate(game.capacity()*2);
+			}
+		}
+		game.flip();
+		if(buffer.remaining()<10+game.remaining()) {
+			drain();
+		}
+		RecordFormat.putVarint(buffer, game.remaining());
+		if(buffer.remaining()>=game.remaining()) {
+			buffer.put(game);
+		}else {
+			drain();
+			while(game.hasRemaining()) {
+				channel.write(game);
+			}
+		}
+		written++;
+	}
+
+	/**
+	 * Gets the number of games written
+	 */
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Writes out the buffered games
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		drain();
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes out the buffered games and closes the channel
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			drain();
+		}finally {
+			channel.close();
+		}
+	}
+}
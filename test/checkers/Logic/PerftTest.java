@@ -0,0 +1,34 @@
+package checkers.Logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the move generator against the published perft counts from the starting position, which the README lists,
+ * with captures forced and multi-hops complete
+ *
+ * @author Justin Gaudet
+ *
+ */
+public class PerftTest {
+	private static final long[] PUBLISHED={1, 7, 49, 302, 1469, 7361, 36768, 179740, 845931};
+
+	@Test
+	public void countsMatchPublished() throws Exception {
+		Perft perft=new Perft(new Board(), 'R', true);
+		for(int depth=1; depth<PUBLISHED.length; depth++) {
+			assertEquals(PUBLISHED[depth], perft.count(depth, 1), "perft "+depth);
+		}
+	}
+
+	@Test
+	public void divideAddsUpOnThreads() throws Exception {
+		Perft perft=new Perft(new Board(), 'R', true);
+		long total=0;
+		for(long count : perft.divide(6, 2)) {
+			total+=count;
+		}
+		assertEquals(PUBLISHED[6], total);
+	}
+}